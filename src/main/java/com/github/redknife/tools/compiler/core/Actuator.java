@@ -16,15 +16,24 @@
 package com.github.redknife.tools.compiler.core;
 
 import com.github.redknife.tools.compiler.exceptions.ExecuteException;
+import com.github.redknife.tools.compiler.runtime.RK;
 import com.github.redknife.tools.compiler.utils.Constants;
 import com.github.redknife.tools.compiler.utils.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 执行器
@@ -34,68 +43,287 @@ import java.util.Objects;
  * @date created in 2020/5/28 4:49 下午
  */
 public class Actuator {
-    private List<String> classes;
+    /**
+     * 目标程序main方法的类型
+     */
+    private static final MethodType MAIN_TYPE = MethodType.methodType(void.class, String[].class);
     private Context context;
     private Logger log = LoggerFactory.getLogger(Actuator.class);
 
     public Actuator(Context context) {
         this.context = context;
-        classes = new ArrayList<>();
     }
 
     /**
-     * 执行目标字节码
+     * 执行编译清单中的目标字节码,不再遍历输出目录,
+     * 清单条目保留了字节码时直接从内存加载,否则从输出目录读取并校验大小和校验值
      *
+     * @param manifest
      * @throws ExecuteException
      */
-    public void execute() throws ExecuteException {
+    public void execute(Manifest manifest) throws ExecuteException {
         if (!context.isExecute()) {
             return;
         }
-        var outPath = context.getOut();
-        getClasses(new File(outPath));//获取中间代码路径
-        var classLoader = new ClassLoader() {
-            @Override
-            protected Class<?> findClass(String name) throws ClassNotFoundException {
-                var path = String.format("%s%s%s%s", outPath,
-                        Constants.SEPARATE, name, Constants.TARGET_CODE_FILE_POSTFIX);
-                try (var in = new BufferedInputStream(new FileInputStream(path))) {
-                    byte[] value = new byte[in.available()];
-                    in.read(value);
-                    return defineClass(name, value, 0, value.length);
+        Objects.requireNonNull(manifest);
+        var classLoader = new ManifestClassLoader(manifest, context.getOut());
+        var entries = manifest.getEntries();
+        var runJobs = Math.min(context.getRunJobs(), entries.size());
+        var results = new ArrayList<Result>(entries.size());
+        var begin = System.nanoTime();
+        if (context.getBench() > 0) {//基准测试始终依次执行,避免程序之间相互干扰计时
+            benchmark(entries, classLoader, results);
+        } else if (runJobs > 1) {
+            concurrentExecute(entries, classLoader, runJobs, results);
+        } else {
+            execute(entries, classLoader, results);
+        }
+        if (log.isDebugEnabled() && runJobs <= 1) {//并发执行时已输出各程序耗时的汇总
+            results.forEach(x -> log.debug("{}执行耗时:{}ms", x.cls, x.elapsed / 1000000));
+        }
+        log.info("执行{}个目标程序, 共计耗时:{}ms", results.size(), (System.nanoTime() - begin) / 1000000);
+    }
+
+    /**
+     * 在当前线程中依次执行目标程序
+     *
+     * @param entries
+     * @param classLoader
+     * @param results
+     * @throws ExecuteException
+     */
+    private void execute(List<Manifest.Entry> entries, ClassLoader classLoader,
+                         List<Result> results) throws ExecuteException {
+        RK.setBuffered(!context.isLineFlush());
+        try {
+            for (Manifest.Entry entry : entries) {
+                var cls = entry.getClassName();
+                log.info("正在执行{}", cls);
+                var begin = System.nanoTime();
+                try {
+                    invoke(classLoader, cls);
                 } catch (Throwable e) {
-                    throw new ClassNotFoundException(String.format("%s文件加载失败", path));
+                    throw new ExecuteException(String.format("%s执行失败!", cls), e);
+                } finally {
+                    RK.flush();//程序结束时输出缓冲区中的剩余内容
+                    results.add(new Result(cls, null, System.nanoTime() - begin, null));
                 }
             }
-        };
-        for (String cls : classes) {
+        } finally {
+            RK.setBuffered(false);
+        }
+    }
+
+    /**
+     * 基准测试模式,每个目标程序先正常执行一次并输出结果,
+     * 随后丢弃输出重复执行预热和测量迭代,统计JIT预热后每次迭代的耗时分布
+     *
+     * @param entries
+     * @param classLoader
+     * @param results
+     * @throws ExecuteException
+     */
+    private void benchmark(List<Manifest.Entry> entries, ClassLoader classLoader,
+                           List<Result> results) throws ExecuteException {
+        var warmup = context.getWarmup();
+        var samples = new long[context.getBench()];
+        for (Manifest.Entry entry : entries) {
+            var cls = entry.getClassName();
             log.info("正在执行{}", cls);
+            var begin = System.nanoTime();
+            long cold = 0L;
             try {
-                classLoader.loadClass(cls).
-                        getDeclaredMethod("main", String[].class).
-                        invoke(null, (Object) new String[]{});
+                var main = entryPoint(classLoader, cls);
+                RK.setBuffered(!context.isLineFlush());
+                try {
+                    main.invokeExact(new String[]{});
+                    cold = System.nanoTime() - begin;
+                } finally {
+                    RK.setBuffered(false);
+                }
+                for (int i = 0; i < warmup + samples.length; i++) {
+                    long elapsed;
+                    RK.capture();
+                    try {
+                        var start = System.nanoTime();
+                        main.invokeExact(new String[]{});
+                        elapsed = System.nanoTime() - start;
+                    } finally {
+                        RK.release();
+                    }
+                    if (i >= warmup) {
+                        samples[i - warmup] = elapsed;
+                        log.debug("{}第{}次测量耗时:{}us", cls, i - warmup + 1, micros(elapsed));
+                    }
+                }
             } catch (Throwable e) {
                 throw new ExecuteException(String.format("%s执行失败!", cls), e);
             }
+            results.add(new Result(cls, null, System.nanoTime() - begin, null));
+            var total = 0L;
+            for (long sample : samples) {
+                total += sample;
+            }
+            Arrays.sort(samples);
+            log.info("{}基准测试, 首次执行:{}us, 预热{}次, 测量{}次, min:{}us, avg:{}us, " +
+                            "p50:{}us, p90:{}us, p99:{}us, max:{}us", cls, micros(cold), warmup, samples.length,
+                    micros(samples[0]), micros(total / samples.length), micros(percentile(samples, 50)),
+                    micros(percentile(samples, 90)), micros(percentile(samples, 99)),
+                    micros(samples[samples.length - 1]));
         }
     }
 
     /**
-     * 加载目标目录下的所有.class文件
+     * 按最近秩法计算已排序样本的百分位数
      *
-     * @param file
+     * @param samples
+     * @param percent
+     * @return
      */
-    private void getClasses(File file) {
-        Objects.requireNonNull(file);
-        var files = file.listFiles();
-        for (File f : files) {
-            if (f.isFile()) {
-                if (f.getName().endsWith(Constants.TARGET_CODE_FILE_POSTFIX)) {
-                    classes.add(f.getName().split("\\.")[0]);
+    private static long percentile(long[] samples, int percent) {
+        var rank = (int) Math.ceil(percent / 100.0 * samples.length);
+        return samples[Math.max(rank, 1) - 1];
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    /**
+     * 由多个线程并发执行目标程序,每个程序的输出被单独捕获,
+     * 全部结束后按清单顺序写入标准输出,保证输出不会相互交错,并汇总输出各程序的耗时及总耗时
+     *
+     * @param entries
+     * @param classLoader
+     * @param runJobs
+     * @param results
+     * @throws ExecuteException
+     */
+    private void concurrentExecute(List<Manifest.Entry> entries, ClassLoader classLoader, int runJobs,
+                                   List<Result> results) throws ExecuteException {
+        var executor = Executors.newFixedThreadPool(runJobs);
+        var start = System.nanoTime();
+        try {
+            var futures = new ArrayList<Future<Result>>(entries.size());
+            for (Manifest.Entry entry : entries) {
+                var cls = entry.getClassName();
+                futures.add(executor.submit(() -> {
+                    Throwable error = null;
+                    String output = null;
+                    var begin = System.nanoTime();
+                    RK.capture();
+                    try {
+                        invoke(classLoader, cls);
+                    } catch (Throwable e) {
+                        error = e;
+                    } finally {
+                        output = RK.release();
+                    }
+                    return new Result(cls, output, System.nanoTime() - begin, error);
+                }));
+            }
+            Result failure = null;
+            for (Future<Result> future : futures) {
+                var result = future.get();
+                log.info("正在执行{}", result.cls);
+                RK.print(result.output);
+                RK.flush();
+                results.add(result);
+                if (Objects.nonNull(result.error) && Objects.isNull(failure)) {
+                    failure = result;
+                }
+            }
+            var summary = new StringBuilder(String.format("%s个线程并发执行%s个目标程序, 总耗时:%sms",
+                    runJobs, results.size(), (System.nanoTime() - start) / 1000000));
+            results.forEach(x -> summary.append(String.format("%s\t%s执行耗时:%sms%s", Constants.LINE, x.cls,
+                    x.elapsed / 1000000, Objects.nonNull(x.error) ? ", 执行失败" : "")));
+            log.info("{}", summary);
+            if (Objects.nonNull(failure)) {
+                throw new ExecuteException(String.format("%s执行失败!", failure.cls), failure.error);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new ExecuteException("目标程序并发执行失败!", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 加载并调用目标程序的main方法
+     *
+     * @param classLoader
+     * @param cls
+     * @throws Throwable
+     */
+    private void invoke(ClassLoader classLoader, String cls) throws Throwable {
+        entryPoint(classLoader, cls).invokeExact(new String[]{});
+    }
+
+    /**
+     * 加载目标程序并查找main方法的句柄,相较反射调用省去了每次调用时的访问检查和参数装箱
+     *
+     * @param classLoader
+     * @param cls
+     * @return
+     * @throws Throwable
+     */
+    private MethodHandle entryPoint(ClassLoader classLoader, String cls) throws Throwable {
+        return MethodHandles.publicLookup().findStatic(classLoader.loadClass(cls), "main", MAIN_TYPE);
+    }
+
+    /**
+     * 目标程序的执行结果
+     */
+    private static class Result {
+        private final String cls;
+        private final String output;
+        private final long elapsed;
+        private final Throwable error;
+
+        private Result(String cls, String output, long elapsed, Throwable error) {
+            this.cls = cls;
+            this.output = output;
+            this.elapsed = elapsed;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 只加载编译清单中的类,支持多个线程并发加载
+     */
+    private static class ManifestClassLoader extends ClassLoader {
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final Manifest manifest;
+        private final String outPath;
+
+        private ManifestClassLoader(Manifest manifest, String outPath) {
+            this.manifest = manifest;
+            this.outPath = outPath;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var entry = manifest.getEntry(name);
+            if (Objects.isNull(entry)) {//不属于本次编译的类交由父加载器处理
+                throw new ClassNotFoundException(String.format("%s不在编译清单中", name));
+            }
+            var value = entry.getBytecode();
+            if (Objects.isNull(value)) {
+                var path = String.format("%s%s%s%s", outPath,
+                        Constants.SEPARATE, name, Constants.TARGET_CODE_FILE_POSTFIX);
+                try (var in = new BufferedInputStream(new FileInputStream(path))) {
+                    value = in.readAllBytes();
+                } catch (Throwable e) {
+                    throw new ClassNotFoundException(String.format("%s文件加载失败", path));
+                }
+                if (value.length != entry.getSize() || Manifest.checksum(value) != entry.getChecksum()) {
+                    throw new ClassNotFoundException(String.format("%s与编译结果不一致", path));
                 }
-            } else {
-                getClasses(f);
             }
+            return defineClass(name, value, 0, value.length);
         }
     }
 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core;
+
+import com.github.redknife.tools.compiler.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 增量编译索引,保存在输出目录下,记录每个源文件的指纹(源码内容与编译器构建的摘要)及其生成的类,
+ * 指纹与输出的.class文件均未变化的源文件无需重新编译。
+ * 文件的大小和修改时间与索引一致时直接复用记录的结果,不再读取文件内容,
+ * 修改时间变化(如重新检出)时才计算摘要或校验值进行比较
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 6:50 下午
+ */
+public class BuildIndex {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String FIELD_SEPARATOR = "\t";
+    private static Logger log = LoggerFactory.getLogger(BuildIndex.class);
+    /**
+     * 编译器自身构建产物的摘要,编译器被重新构建后随之变化
+     */
+    private static volatile String compilerDigest;
+    private final Path path;
+    private final String out;
+    /**
+     * 参与指纹计算的编译器构建摘要及代码生成方式,任一变化都会使所有源文件重新编译
+     */
+    private final String salt;
+    /**
+     * 上一次编译保存的索引记录,key为源文件的绝对路径
+     */
+    private final Map<String, Record> records;
+    /**
+     * 本次编译遍历到的源文件及其指纹
+     */
+    private final Map<String, Source> sources = new LinkedHashMap<>();
+    /**
+     * 是否存在需要重新编译或指纹需要更新的源文件
+     */
+    private boolean changed;
+
+    private BuildIndex(String out, String salt, Map<String, Record> records) {
+        this.path = Paths.get(out, Constants.BUILD_INDEX_FILE);
+        this.out = out;
+        this.salt = salt;
+        this.records = records;
+    }
+
+    /**
+     * 加载输出目录下的索引,索引不存在、无法解析或由其它构建的编译器生成时视为全量编译,
+     * 索引首行记录编译器版本、构建摘要及代码生成方式
+     *
+     * @param out
+     * @param codegen
+     * @return
+     */
+    public static BuildIndex load(String out, String codegen) {
+        var records = new HashMap<String, Record>();
+        var path = Paths.get(out, Constants.BUILD_INDEX_FILE);
+        var salt = String.format("%s:%s:%s", Constants.VERSION, compilerDigest(), codegen);
+        if (Files.isRegularFile(path)) {
+            try {
+                var lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+                if (lines.isEmpty() || !salt.equals(lines.get(0))) {
+                    return new BuildIndex(out, salt, records);
+                }
+                for (String line : lines.subList(1, lines.size())) {
+                    var fields = line.split(FIELD_SEPARATOR, 8);
+                    if (fields.length == 8) {
+                        records.put(fields[7], new Record(new Source(fields[0], Long.parseLong(fields[1]),
+                                Long.parseLong(fields[2])), fields[3], Integer.parseInt(fields[4]),
+                                Long.parseLong(fields[5], 16), Long.parseLong(fields[6])));
+                    }
+                }
+            } catch (Throwable e) {
+                log.warn("增量编译索引{}无法解析, 将执行全量编译", path);
+                records.clear();
+            }
+        }
+        return new BuildIndex(out, salt, records);
+    }
+
+    /**
+     * 检查源文件是否无需重新编译,无需编译时将输出目录中已有的类记录到编译清单中;
+     * 无论是否需要重新编译,都先按遍历顺序在清单中预留该类的位置
+     *
+     * @param file
+     * @param manifest
+     * @return
+     * @throws Throwable
+     */
+    public synchronized boolean isUpToDate(File file, Manifest manifest) throws Throwable {
+        var key = file.getAbsolutePath();
+        manifest.reserve(className(key));
+        var record = records.get(key);
+        var size = file.length();
+        var modified = file.lastModified();
+        Source source;
+        if (Objects.nonNull(record) && record.source.size == size && record.source.modified == modified) {
+            source = record.source;//文件未被改动过,沿用已有的指纹
+        } else {
+            source = new Source(fingerprint(Files.readAllBytes(file.toPath())), size, modified);
+        }
+        sources.put(key, source);
+        changed |= Objects.isNull(record) || source != record.source;
+        if (Objects.isNull(record) || !record.source.fingerprint.equals(source.fingerprint)) {
+            return false;
+        }
+        var classFile = new File(out, record.className + Constants.TARGET_CODE_FILE_POSTFIX);
+        if (!classFile.isFile() || classFile.length() != record.size) {
+            changed = true;
+            return false;
+        }
+        if (classFile.lastModified() != record.classModified) {
+            changed = true;
+            if (Manifest.checksum(Files.readAllBytes(classFile.toPath())) != record.checksum) {//.class文件被修改过
+                return false;
+            }
+        }
+        manifest.add(record.className, record.size, record.checksum);
+        return true;
+    }
+
+    /**
+     * 保存本次编译遍历到的源文件的索引记录,已删除的源文件不再保留,
+     * 先写入临时文件再替换,避免编译中断时留下不完整的索引;所有源文件均未变化时不重写索引
+     *
+     * @param manifest
+     * @throws Throwable
+     */
+    public synchronized void save(Manifest manifest) throws Throwable {
+        if (!changed && sources.size() == records.size()) {
+            return;
+        }
+        var lines = new ArrayList<String>(sources.size() + 1);
+        lines.add(salt);
+        sources.forEach((key, source) -> {
+            var entry = manifest.getEntry(className(key));
+            if (Objects.nonNull(entry)) {
+                var classModified = new File(out, entry.getClassName() + Constants.TARGET_CODE_FILE_POSTFIX).lastModified();
+                lines.add(String.join(FIELD_SEPARATOR, source.fingerprint, String.valueOf(source.size),
+                        String.valueOf(source.modified), entry.getClassName(), String.valueOf(entry.getSize()),
+                        Long.toHexString(entry.getChecksum()), String.valueOf(classModified), key));
+            }
+        });
+        var temp = Paths.get(out, Constants.BUILD_INDEX_FILE + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 计算编译器自身构建产物的摘要,jar包取整个文件的摘要,类目录按相对路径顺序取所有文件的摘要,
+     * 同一个JVM中只计算一次;无法计算时退化为编译器版本号
+     *
+     * @return
+     */
+    private static String compilerDigest() {
+        if (Objects.nonNull(compilerDigest)) {
+            return compilerDigest;
+        }
+        synchronized (BuildIndex.class) {
+            if (Objects.isNull(compilerDigest)) {
+                try {
+                    var location = Paths.get(BuildIndex.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+                    var digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+                    if (Files.isDirectory(location)) {
+                        try (var stream = Files.walk(location)) {
+                            for (Path file : stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                                digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                                digest.update(Files.readAllBytes(file));
+                            }
+                        }
+                    } else {
+                        digest.update(Files.readAllBytes(location));
+                    }
+                    compilerDigest = String.format("%064x", new BigInteger(1, digest.digest()));
+                } catch (Throwable e) {
+                    log.warn("无法计算编译器构建摘要, 增量编译索引仅以版本号区分编译器: {}", e.toString());
+                    compilerDigest = Constants.VERSION;
+                }
+            }
+            return compilerDigest;
+        }
+    }
+
+    /**
+     * 源文件对应的类名,与语法解析时的命名规则一致
+     *
+     * @param path
+     * @return
+     */
+    private static String className(String path) {
+        return new File(path).getName().split("\\.")[0];
+    }
+
+    private String fingerprint(byte[] source) throws Throwable {
+        var digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        digest.update(salt.getBytes(StandardCharsets.UTF_8));
+        return String.format("%064x", new BigInteger(1, digest.digest(source)));
+    }
+
+    /**
+     * 源文件的指纹及计算指纹时的文件大小和修改时间
+     */
+    private static class Source {
+        private final String fingerprint;
+        private final long size;
+        private final long modified;
+
+        private Source(String fingerprint, long size, long modified) {
+            this.fingerprint = fingerprint;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * 索引记录
+     */
+    private static class Record {
+        private final Source source;
+        private final String className;
+        private final int size;
+        private final long checksum;
+        private final long classModified;
+
+        private Record(Source source, String className, int size, long checksum, long classModified) {
+            this.source = source;
+            this.className = className;
+            this.size = size;
+            this.checksum = checksum;
+            this.classModified = classModified;
+        }
+    }
+}
@@ -22,9 +22,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Stream;
 
 /**
  * 编译入口类
@@ -35,50 +32,34 @@ import java.util.stream.Stream;
  */
 public class Main {
     private Context context;
-    private List<File> sourceFiles;
     private RedKnifeCompiler compiler;
     private Logger log = LoggerFactory.getLogger(Main.class);
 
     public Main(Context context) {
         this.context = context;
-        sourceFiles = new ArrayList<>();
         compiler = new RedKnifeCompiler(context);
     }
 
     /**
      * 编译入口
      *
+     * @return 目标程序是否执行成功,未执行时返回true
      * @throws Throwable
      */
-    public void compile() throws Throwable {
+    public boolean compile() throws Throwable {
         var file = new File(context.getIn());
         if (!file.isDirectory()) {
             throw new FileReadException(String.format("%s不是目录", file.getPath()));
         }
-        getSourceFiles(file);
-        log.debug(sourceFiles.toString());
-        if (!sourceFiles.isEmpty()) {
-            compiler.compile(sourceFiles);
-        } else {
-            log.warn("目录: {}下没有加载到任何源文件", context.getIn());
+        if (!context.isWatch()) {
+            return compiler.compile(file.toPath());//边遍历目录边编译
         }
-    }
-
-    /**
-     * 获取目标目录下所有源文件的绝对路径
-     *
-     * @param file
-     */
-    private void getSourceFiles(File file) {
-        var files = file.listFiles();
-        Stream.of(files).forEach(x -> {
-            if (x.isFile()) {
-                if (x.getName().endsWith(Constants.SOURCE_CODE_FILE_POSTFIX)) {//只加载指定后缀的文件
-                    sourceFiles.add(x);
-                }
-            } else {
-                getSourceFiles(x);
-            }
-        });
+        try {
+            compiler.compile(file.toPath());
+        } catch (Throwable e) {//首次编译失败时依然进入监听,等待源文件被修正
+            log.error("{}", Constants.EXCEPTION_PREFIX, e);
+        }
+        new Watcher(context, compiler).watch(file.toPath());
+        return true;
     }
 }
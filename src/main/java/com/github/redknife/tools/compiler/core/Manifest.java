@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * 编译清单,记录本次编译产生的所有类及其大小和校验值,执行器只执行清单中的类
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 4:30 下午
+ */
+public class Manifest {
+    /**
+     * 类名与清单条目的映射,同名类以最后一次生成的为准,预留了位置但尚未生成的类的条目为null
+     */
+    private Map<String, Entry> entries;
+
+    public Manifest() {
+        entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * 记录生成的类,允许并行编译的多个线程同时调用
+     *
+     * @param className
+     * @param bytecode
+     * @param inMemory  是否在清单中保留字节码,用于不写入文件的执行方式
+     */
+    public synchronized void add(String className, byte[] bytecode, boolean inMemory) {
+        entries.put(className, new Entry(className, bytecode.length, checksum(bytecode), inMemory ? bytecode : null));
+    }
+
+    /**
+     * 按源文件的发现顺序为类预留清单中的位置,之后记录的条目保持该位置,
+     * 使增量编译时跳过的类与重新生成的类仍按源文件顺序执行
+     *
+     * @param className
+     */
+    public synchronized void reserve(String className) {
+        entries.putIfAbsent(className, null);
+    }
+
+    /**
+     * 记录增量编译时未重新生成的类,字节码从输出目录中加载
+     *
+     * @param className
+     * @param size
+     * @param checksum
+     */
+    public synchronized void add(String className, int size, long checksum) {
+        entries.put(className, new Entry(className, size, checksum, null));
+    }
+
+    public synchronized List<Entry> getEntries() {
+        var result = new ArrayList<Entry>(entries.size());
+        entries.values().stream().filter(Objects::nonNull).forEach(result::add);
+        return Collections.unmodifiableList(result);
+    }
+
+    public synchronized Entry getEntry(String className) {
+        return entries.get(className);
+    }
+
+    public synchronized int size() {
+        return (int) entries.values().stream().filter(Objects::nonNull).count();
+    }
+
+    /**
+     * 计算字节码的CRC32校验值
+     *
+     * @param bytecode
+     * @return
+     */
+    public static long checksum(byte[] bytecode) {
+        var crc = new CRC32();
+        crc.update(bytecode, 0, bytecode.length);
+        return crc.getValue();
+    }
+
+    /**
+     * 清单条目
+     */
+    public static class Entry {
+        private final String className;
+        private final int size;
+        private final long checksum;
+        private final byte[] bytecode;
+
+        private Entry(String className, int size, long checksum, byte[] bytecode) {
+            this.className = className;
+            this.size = size;
+            this.checksum = checksum;
+            this.bytecode = bytecode;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * 返回内存中的字节码,写入文件的编译方式返回null
+         *
+         * @return
+         */
+        public byte[] getBytecode() {
+            return bytecode;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "className='" + className + '\'' +
+                    ", size=" + size +
+                    ", checksum=" + Long.toHexString(checksum) +
+                    '}';
+        }
+    }
+}
@@ -32,9 +32,17 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.nio.CharBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 编译器核心控制器
@@ -44,44 +52,332 @@ import java.util.Objects;
  * @date created in 2020/5/13 4:59 下午
  */
 public class RedKnifeCompiler {
-    private ClassPool classPool;
     private Parser parser;
     private Context context;
-    private Generate generate;
     private Logger log = LoggerFactory.getLogger(RedKnifeCompiler.class);
 
     public RedKnifeCompiler(Context context) {
         this.context = context;
-        this.classPool = ClassPool.getDefault();
-        this.generate = new Generate(context);
         this.parser = new RedKnifeParser();
     }
 
+    /**
+     * 编译指定的源文件,文件列表不是完整的源码目录,因此不使用增量编译索引
+     *
+     * @param files
+     * @throws Throwable
+     */
     public void compile(List<File> files) throws Throwable {
-        var begin = System.currentTimeMillis();
         Objects.requireNonNull(files);
-        var trees = compile01(files);//执行词法、语法解析
-        if (trees.isEmpty()) {
-            throw new ParseException("AST语法树无法生成");
+        compile(consumer -> {
+            for (File file : files) {
+                consumer.accept(file);
+            }
+            return files.size();
+        }, context.getJobs() > 1 && files.size() > 1, false);
+    }
+
+    /**
+     * 编译目录下的所有源文件,目录遍历与编译同时进行,每发现一个源文件即交由编译阶段处理
+     *
+     * @param root
+     * @return 目标程序是否执行成功,未执行时返回true
+     * @throws Throwable
+     */
+    public boolean compile(Path root) throws Throwable {
+        Objects.requireNonNull(root);
+        return compile(consumer -> RedKnifeFileManager.walkSourceFiles(root, consumer), context.getJobs() > 1, incremental());
+    }
+
+    /**
+     * 编译源文件并执行
+     *
+     * @param sources
+     * @param parallel    是否并行编译
+     * @param incremental 是否增量编译
+     * @return 目标程序是否执行成功,未执行时返回true
+     * @throws Throwable
+     */
+    private boolean compile(Sources sources, boolean parallel, boolean incremental) throws Throwable {
+        var begin = System.currentTimeMillis();
+        var manifest = new Manifest();//记录本次编译生成的类
+        var index = incremental ? BuildIndex.load(context.getOut(), context.getCodegen()) : null;
+        var skipped = new int[1];
+        if (Objects.nonNull(index)) {//过滤掉无需重新编译的源文件
+            var all = sources;
+            sources = consumer -> all.forEach(file -> {
+                if (index.isUpToDate(file, manifest)) {
+                    log.debug("{}未发生变化, 跳过编译", file.getName());
+                    skipped[0]++;
+                } else {
+                    consumer.accept(file);
+                }
+            });
+        }
+        var count = parallel ? parallelCompile(sources, manifest) ://并行编译
+                pipelineCompile(sources, manifest);//流水线编译
+        if (count == 0) {
+            log.warn("目录: {}下没有加载到任何源文件", context.getIn());
+            return true;
+        }
+        if (Objects.nonNull(index)) {
+            index.save(manifest);
+            log.info("增量编译, 共{}个源文件, 跳过{}个未发生变化的源文件", count, skipped[0]);
         }
-        printASTTree(trees);//打印语法树
-        compile02(trees);//转义为Java代码后再进行语义分析和生成中间代码
+        log.debug("共编译{}个源文件", count);
         log.info("编译结束，耗时: {}ms", System.currentTimeMillis() - begin);
         try {
-            new Actuator(context).execute();//调用执行器执行
+            new Actuator(context).execute(manifest);//调用执行器执行
         } catch (ExecuteException e) {
             log.error("{}", e);//执行失败异常单独处理
+            return false;
         }
+        return true;
     }
 
     /**
-     * 语义分析、中间代码生成
+     * 并行编译,每个工作线程持有独立的语法分析器、代码生成器和ClassPool,
+     * 每个源文件在同一个线程内完成词法、语法解析和中间代码生成
      *
-     * @param trees
+     * @param sources
+     * @param manifest
+     * @return 源文件数量
+     * @throws Throwable
+     */
+    private int parallelCompile(Sources sources, Manifest manifest) throws Throwable {
+        var parsers = ThreadLocal.withInitial(RedKnifeParser::new);
+        var generates = ThreadLocal.withInitial(() -> new Generate(context, new ClassPool(true)));
+        var executor = Executors.newFixedThreadPool(context.getJobs());
+        try {
+            var futures = new ArrayList<Future<Unit>>();
+            var count = sources.forEach(file -> {
+                futures.add(executor.submit(() -> {
+                    var unit = new Unit(file, null);
+                    try {
+                        var tree = parse(parsers.get(), file);
+                        if (Objects.isNull(tree)) {
+                            throw new ParseException("AST语法树无法生成");
+                        }
+                        printASTTree(List.of(tree));
+                        var ctClass = generates.get().generate(tree);
+                        unit.className = ctClass.getName();
+                        unit.bytecode = ctClass.toBytecode();
+                        ctClass.detach();
+                        write(unit.className, unit.bytecode);
+                    } catch (Throwable e) {
+                        unit.error = e;
+                    }
+                    return unit;
+                }));
+            });
+            for (Future<Unit> future : futures) {//按源文件顺序记录到编译清单中,并抛出第一个编译失败的异常
+                var unit = future.get();
+                if (Objects.nonNull(unit.error)) {
+                    throw unit.error;
+                }
+                manifest.add(unit.className, unit.bytecode, context.isInMemory());
+            }
+            return count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 流水线编译,源码读取、词法语法解析、中间代码生成和.class文件写入分别由独立的线程执行,
+     * 各阶段之间通过有界队列传递编译单元,每个AST在其字节码生成后即可被回收
+     *
+     * @param sources
+     * @param manifest
+     * @return 源文件数量
+     * @throws Throwable
+     */
+    private int pipelineCompile(Sources sources, Manifest manifest) throws Throwable {
+        var units = new ArrayBlockingQueue<Unit>(Constants.PIPELINE_QUEUE_CAPACITY);
+        var trees = new ArrayBlockingQueue<Unit>(Constants.PIPELINE_QUEUE_CAPACITY);
+        var bytecodes = new ArrayBlockingQueue<Unit>(Constants.PIPELINE_QUEUE_CAPACITY);
+        var error = new AtomicReference<Throwable>();
+        var count = new int[1];
+        var stages = new ArrayList<FutureTask<Void>>(4);
+        stages.add(new FutureTask<>(stage(stages, error, () -> {//遍历并读取源码
+            count[0] = sources.forEach(file -> units.put(new Unit(file, readSource(file))));
+            units.put(Unit.EOF);
+        }), null));
+        stages.add(new FutureTask<>(stage(stages, error, () -> transfer(units, trees, unit -> {//词法、语法解析
+            unit.tree = parse(parser, unit.file, unit.source);
+            unit.source = null;
+            if (Objects.isNull(unit.tree)) {
+                return null;
+            }
+            printASTTree(List.of(unit.tree));//打印语法树
+            return unit;
+        })), null));
+        var generate = new Generate(context, new ClassPool(true));//ClassPool的生命周期与本次编译一致
+        stages.add(new FutureTask<>(stage(stages, error, () -> transfer(trees, bytecodes, unit -> {//转义为Java代码后再进行语义分析和生成中间代码
+            var ctClass = generate.generate(unit.tree);
+            unit.tree = null;
+            unit.className = ctClass.getName();
+            unit.bytecode = ctClass.toBytecode();
+            ctClass.detach();//字节码生成后即从ClassPool中移除
+            return unit;
+        })), null));
+        stages.add(new FutureTask<>(stage(stages, error, () -> transfer(bytecodes, null, unit -> {//写入.class文件
+            output(manifest, unit.className, unit.bytecode);
+            return null;
+        })), null));
+        var executor = Executors.newFixedThreadPool(stages.size());
+        try {
+            stages.forEach(executor::execute);
+            for (FutureTask<Void> stage : stages) {
+                try {
+                    stage.get();
+                } catch (CancellationException e) {
+                    //某一阶段失败后其余阶段被取消,异常已被记录
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (Objects.nonNull(error.get())) {
+            throw error.get();
+        }
+        if (count[0] > 0 && manifest.size() == 0) {
+            throw new ParseException("AST语法树无法生成");
+        }
+        return count[0];
+    }
+
+    /**
+     * 内存编译不写入输出目录,无法复用上一次的编译结果
+     *
+     * @return
+     */
+    private boolean incremental() {
+        if (context.isIncremental() && context.isInMemory()) {
+            log.warn("--in-memory不写入输出目录, 忽略--incremental");
+            return false;
+        }
+        return context.isIncremental();
+    }
+
+    /**
+     * 输出字节码并记录到编译清单中,内存编译时字节码只保存在清单中,否则写入.class文件
+     *
+     * @param manifest
+     * @param className
+     * @param bytecode
+     * @throws Throwable
+     */
+    private void output(Manifest manifest, String className, byte[] bytecode) throws Throwable {
+        write(className, bytecode);
+        manifest.add(className, bytecode, context.isInMemory());
+    }
+
+    /**
+     * 将字节码写入.class文件,内存编译时不写入
+     *
+     * @param className
+     * @param bytecode
+     * @throws Throwable
+     */
+    private void write(String className, byte[] bytecode) throws Throwable {
+        if (!context.isInMemory()) {
+            RedKnifeFileManager.writeClass(context.getOut(), className, bytecode);
+        }
+    }
+
+    /**
+     * 从上游队列中依次取出编译单元交由当前阶段处理,并将处理结果传递给下游队列,直至遇到结束标记
+     *
+     * @param in
+     * @param out
+     * @param handler
      * @throws Throwable
      */
-    private void compile02(List<Tree> trees) throws Throwable {
-        generate.compile(trees);
+    private void transfer(BlockingQueue<Unit> in, BlockingQueue<Unit> out, Handler handler) throws Throwable {
+        while (true) {
+            var unit = in.take();
+            if (unit == Unit.EOF) {
+                if (Objects.nonNull(out)) {
+                    out.put(Unit.EOF);
+                }
+                return;
+            }
+            unit = handler.handle(unit);
+            if (Objects.nonNull(unit) && Objects.nonNull(out)) {
+                out.put(unit);
+            }
+        }
+    }
+
+    /**
+     * 包装流水线中的单个阶段,任一阶段失败时记录异常并取消所有阶段
+     *
+     * @param stages
+     * @param error
+     * @param task
+     * @return
+     */
+    private Runnable stage(List<FutureTask<Void>> stages, AtomicReference<Throwable> error, Task task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (InterruptedException e) {
+                //其它阶段失败导致的中断,异常已被记录
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+                stages.forEach(stage -> stage.cancel(true));
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Throwable;
+    }
+
+    /**
+     * 待编译的源文件来源,可以是已知的文件列表,也可以是边遍历边产出的目录
+     */
+    @FunctionalInterface
+    private interface Sources {
+        /**
+         * 依次将源文件交由consumer处理
+         *
+         * @param consumer
+         * @return 源文件数量
+         * @throws Throwable
+         */
+        int forEach(RedKnifeFileManager.SourceConsumer consumer) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Unit handle(Unit unit) throws Throwable;
+    }
+
+    /**
+     * 在流水线各阶段之间传递的编译单元,每个阶段处理完成后释放上一阶段的产物
+     */
+    private static class Unit {
+        /**
+         * 结束标记
+         */
+        static final Unit EOF = new Unit(null, null);
+        File file;
+        CharBuffer source;
+        Tree tree;
+        String className;
+        byte[] bytecode;
+        /**
+         * 并行编译时记录的编译异常
+         */
+        Throwable error;
+
+        Unit(File file, CharBuffer source) {
+            this.file = file;
+            this.source = source;
+        }
     }
 
     /**
@@ -102,25 +398,31 @@ public class RedKnifeCompiler {
     }
 
     /**
-     * 执行词法、语法解析
+     * 对单个源文件执行词法、语法解析
      *
-     * @param files
+     * @param parser
+     * @param file
      * @return
      * @throws Throwable
      */
-    private List<Tree> compile01(List<File> files) throws Throwable {
-        var result = new ArrayList<Tree>();
-        for (File file : files) {
-            var sourceCode = readSource(file);
-            if (context.isDebug()) {
-                log.info("\nsource code:\n{}:\n{}\n", file.getName(), sourceCode);
-            }
-            var tree = parser.parse(sourceCode, file.getName().split("\\.")[0]);//开始执行语法解析
-            if (Objects.nonNull(tree)) {
-                result.add(tree);
-            }
+    private Tree parse(Parser parser, File file) throws Throwable {
+        return parse(parser, file, readSource(file));
+    }
+
+    /**
+     * 对已读取的源码执行词法、语法解析
+     *
+     * @param parser
+     * @param file
+     * @param sourceCode
+     * @return
+     * @throws Throwable
+     */
+    private Tree parse(Parser parser, File file, CharBuffer sourceCode) throws Throwable {
+        if (context.isDebug()) {
+            log.info("\nsource code:\n{}:\n{}\n", file.getName(), sourceCode);
         }
-        return result;
+        return parser.parse(sourceCode, file.getName().split("\\.")[0]);//开始执行语法解析
     }
 
     /**
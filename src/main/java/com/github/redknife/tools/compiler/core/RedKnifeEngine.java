@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core;
+
+import com.github.redknife.tools.compiler.core.parser.Generate;
+import com.github.redknife.tools.compiler.core.parser.RedKnifeParser;
+import com.github.redknife.tools.compiler.exceptions.ParseException;
+import com.github.redknife.tools.compiler.utils.Constants;
+import com.github.redknife.tools.compiler.utils.Context;
+import javassist.ClassPool;
+
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * 供其它程序嵌入使用的内存编译接口,直接将源码文本编译为字节码或已加载的类,不读写任何文件。
+ * 每个调用线程持有独立且可复用的语法分析器和代码生成器,允许多个线程并发调用;
+ * 生成的类在字节码输出后即从ClassPool中移除,同名的类可以被反复编译
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 8:15 下午
+ */
+public class RedKnifeEngine {
+    private Context context;
+    private ThreadLocal<RedKnifeParser> parsers = ThreadLocal.withInitial(RedKnifeParser::new);
+    private ThreadLocal<Generate> generates;
+
+    /**
+     * 使用缺省的代码生成方式
+     */
+    public RedKnifeEngine() {
+        this(Constants.CODEGEN_SOURCE);
+    }
+
+    /**
+     * @param codegen 代码生成方式(source|bytecode)
+     */
+    public RedKnifeEngine(String codegen) {
+        Objects.requireNonNull(codegen);
+        if (!Constants.CODEGEN_SOURCE.equals(codegen) && !Constants.CODEGEN_BYTECODE.equals(codegen)) {
+            throw new IllegalArgumentException(String.format("无效的代码生成方式: %s", codegen));
+        }
+        context = new Context.Builder(null).codegen(codegen).inMemory(true).build();
+        generates = ThreadLocal.withInitial(() -> new Generate(context, new ClassPool(true)));
+    }
+
+    /**
+     * 将源码编译为字节码
+     *
+     * @param className
+     * @param source
+     * @return
+     * @throws Throwable
+     */
+    public byte[] compile(String className, String source) throws Throwable {
+        Objects.requireNonNull(className);
+        Objects.requireNonNull(source);
+        try {
+            var tree = parsers.get().parse(CharBuffer.wrap(source), className);
+            if (Objects.isNull(tree)) {
+                throw new ParseException("AST语法树无法生成");
+            }
+            var ctClass = generates.get().generate(tree);
+            try {
+                return ctClass.toBytecode();
+            } finally {
+                ctClass.detach();
+            }
+        } catch (Throwable e) {//编译失败后丢弃当前线程可能残留中间状态的分析器和生成器
+            parsers.remove();
+            generates.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 将源码编译并加载为类,每个类由独立的类加载器加载,不再被引用时可随类加载器一同卸载
+     *
+     * @param className
+     * @param source
+     * @return
+     * @throws Throwable
+     */
+    public Class<?> load(String className, String source) throws Throwable {
+        return new BytecodeClassLoader(getClass().getClassLoader()).define(className, compile(className, source));
+    }
+
+    /**
+     * 直接由字节码定义类的类加载器,父加载器负责加载运行时支持类
+     */
+    private static class BytecodeClassLoader extends ClassLoader {
+        private BytecodeClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String className, byte[] bytecode) {
+            return defineClass(className, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core;
+
+import com.github.redknife.tools.compiler.utils.Constants;
+import com.github.redknife.tools.compiler.utils.Context;
+import com.github.redknife.tools.compiler.utils.RedKnifeFileManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 源码目录监听器,源文件变化后在当前JVM中只重新编译(及运行)发生变化的源文件,
+ * 词法、语法分析器和Javassist均已预热,省去了每次启动JVM和初始化的开销
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 7:20 下午
+ */
+public class Watcher {
+    private Context context;
+    private RedKnifeCompiler compiler;
+    /**
+     * 已注册的目录
+     */
+    private Map<WatchKey, Path> keys = new HashMap<>();
+    private Logger log = LoggerFactory.getLogger(Watcher.class);
+
+    public Watcher(Context context, RedKnifeCompiler compiler) {
+        this.context = context;
+        this.compiler = compiler;
+    }
+
+    /**
+     * 持续监听目录下的源文件,直至线程被中断
+     *
+     * @param root
+     * @throws Throwable
+     */
+    public void watch(Path root) throws Throwable {
+        try (var watchService = FileSystems.getDefault().newWatchService()) {
+            register(watchService, root, null);
+            log.info("正在监听目录: {}下源文件的变化...", root);
+            while (!Thread.currentThread().isInterrupted()) {
+                var changed = new LinkedHashSet<Path>();
+                var overflow = collect(watchService, watchService.take(), changed);
+                WatchKey key;
+                //去抖动,编辑器保存文件时通常会产生多个连续事件,直至静默一段时间后再统一编译
+                while (Objects.nonNull(key = watchService.poll(Constants.WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS))) {
+                    overflow |= collect(watchService, key, changed);
+                }
+                try {
+                    if (overflow) {//事件丢失时无法确定变化的文件,重新编译整个目录
+                        log.warn("监听事件溢出, 重新编译目录: {}", root);
+                        compiler.compile(root);
+                        continue;
+                    }
+                    var files = new ArrayList<File>(changed.size());
+                    changed.stream().filter(Files::isRegularFile).forEach(x -> files.add(x.toFile()));
+                    if (!files.isEmpty()) {
+                        log.info("源文件发生变化: {}", files);
+                        compiler.compile(files);
+                    }
+                } catch (Throwable e) {//编译失败后继续监听
+                    log.error("{}", Constants.EXCEPTION_PREFIX, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 收集单个目录上的事件,新建的子目录会被注册,且其中已有的源文件视为发生变化
+     *
+     * @param watchService
+     * @param key
+     * @param changed
+     * @return 是否发生事件溢出
+     * @throws Throwable
+     */
+    private boolean collect(WatchService watchService, WatchKey key, Set<Path> changed) throws Throwable {
+        var overflow = false;
+        var dir = keys.get(key);
+        for (var event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (Objects.isNull(dir)) {
+                continue;
+            }
+            var path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                register(watchService, path, changed);
+            } else if (event.kind() != ENTRY_DELETE &&
+                    path.getFileName().toString().endsWith(Constants.SOURCE_CODE_FILE_POSTFIX)) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {//目录已被删除
+            keys.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * 注册目录及其所有子目录
+     *
+     * @param watchService
+     * @param root
+     * @param changed      不为null时记录目录下已有的源文件
+     * @throws Throwable
+     */
+    private void register(WatchService watchService, Path root, Set<Path> changed) throws Throwable {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (Objects.nonNull(changed)) {
+            RedKnifeFileManager.walkSourceFiles(root, file -> changed.add(file.toPath()));
+        }
+    }
+}
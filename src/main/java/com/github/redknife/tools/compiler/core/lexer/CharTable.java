@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core.lexer;
+
+import com.github.redknife.tools.compiler.utils.Utils;
+
+/**
+ * 字符分类表,覆盖整个BMP平面,词法分析时通过一次数组访问即可完成字符分类
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 6:10 下午
+ */
+public final class CharTable {
+    /**
+     * 非法字符或结束符
+     */
+    public static final byte OTHER = 0;
+    /**
+     * 空白符
+     */
+    public static final byte SPACE = 1;
+    /**
+     * 标识符首字符,包括字母、'$'、'_'和中文字符
+     */
+    public static final byte IDENT = 2;
+    /**
+     * 数字
+     */
+    public static final byte DIGIT = 3;
+    /**
+     * 双引号
+     */
+    public static final byte QUOTE = 4;
+    /**
+     * 分隔符
+     */
+    public static final byte SEPARATOR = 5;
+    /**
+     * 运算符
+     */
+    public static final byte OPERATOR = 6;
+    private static final byte[] TABLE = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (int ch = 0x80; ch <= Character.MAX_VALUE; ch++) {
+            if (Utils.isChinese((char) ch)) {
+                TABLE[ch] = IDENT;//标识符支持中文
+            }
+        }
+        for (char ch = 'A'; ch <= 'Z'; ch++) {
+            TABLE[ch] = IDENT;
+            TABLE[ch + ('a' - 'A')] = IDENT;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            TABLE[ch] = DIGIT;
+        }
+        set(SPACE, " \t\n\r\u0000");
+        set(IDENT, "$_");
+        set(QUOTE, "\"");
+        set(SEPARATOR, "[]().,{};");
+        set(OPERATOR, "!%&*?+-:<=>^|~@/");
+    }
+
+    private CharTable() {
+    }
+
+    private static void set(byte type, String chars) {
+        for (char ch : chars.toCharArray()) {
+            TABLE[ch] = type;
+        }
+    }
+
+    /**
+     * 返回字符分类
+     *
+     * @param ch
+     * @return
+     */
+    public static byte of(char ch) {
+        return TABLE[ch];
+    }
+
+    /**
+     * 判断字符是否可以作为标识符的后续字符
+     *
+     * @param ch
+     * @return
+     */
+    public static boolean isIdentPart(char ch) {
+        var type = TABLE[ch];
+        return type == IDENT || type == DIGIT;
+    }
+}
@@ -16,15 +16,11 @@
 package com.github.redknife.tools.compiler.core.lexer;
 
 import com.github.redknife.tools.compiler.exceptions.ParseException;
-import com.github.redknife.tools.compiler.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
 
 /**
  * red-knife-compiler词法分析器实现类
@@ -59,104 +55,116 @@ public class Scanner implements Lexer {
      */
     private SymbolTable symbolTable;
     /**
-     * 所有保留字符号串的总长度,当词素的符号串长度>此值时，意味着这是一个标识符
+     * 当前词素在codes中的起始位置
      */
-    private int maxKey;
+    private int bp;
     /**
-     * 反向索引表,Attribute.flag对应TokenKin序数
+     * 当前词素的长度
      */
-    private Map<Integer, Integer> indexs;
-    /**
-     * 词素缓存
-     */
-    private char[] sbuf;
+    private int sp;
     /**
      * 符号索引
      */
     private int index;
+    /**
+     * 最近一个Token的起始位置
+     */
+    private int tokenPos;
+    /**
+     * 最近一个Token的词素长度
+     */
+    private int tokenLength;
+    /**
+     * 最近一个Token的符号id
+     */
+    private int symbol;
+    /**
+     * 保留字和运算符表,类加载时构建一次,此后只读,所有Scanner共享
+     */
+    private static final SymbolTable KEYWORDS = new SymbolTable();
+    /**
+     * 反向索引表,保留字的符号id对应的TokenKind
+     */
+    private static final Token.TokenKind[] KEYWORD_KINDS;
     private static Logger log = LoggerFactory.getLogger(Scanner.class);
 
+    static {
+        var tokenKinds = Token.TokenKind.values();
+        KEYWORD_KINDS = new Token.TokenKind[tokenKinds.length];
+        for (Token.TokenKind tokenKind : tokenKinds) {
+            var name = tokenKind.name;
+            if (Objects.nonNull(name)) {
+                KEYWORD_KINDS[KEYWORDS.intern(name.toCharArray(), 0, name.length())] = tokenKind;
+            }
+        }
+    }
+
     protected Scanner(char[] cs) {
         Objects.requireNonNull(cs);
         codes = cs;
         codes = Arrays.copyOf(codes, codes.length + 1);
         codes[codes.length - 1] = EOI;
         symbolTable = new SymbolTable();
-        indexs = new ConcurrentHashMap<>();
+    }
+
+
+    @Override
+    public Token nextToken() throws ParseException {
+        var tokenKind = scan();
+        return Objects.nonNull(tokenKind) ?
+                new Token(symbolTable.getAttribute(symbol), tokenKind, tokenPos) : null;
     }
 
     /**
-     * 相关初始化操作,优先将保留字添加至符号表中
+     * 一次性完成整个源文件的词法分析,并将Token序列记录到TokenStream中,注释不参与语法分析因此不会被记录
      *
      * @return
+     * @throws ParseException
      */
-    protected Scanner init() {
-        Stream.of(Token.TokenKind.values()).forEach(tokenKind -> {
-            var name = tokenKind.name;
-            if (Objects.nonNull(name)) {
-                var attribute = symbolTable.getAttribute(name.toCharArray());
-                var flag = attribute.flag;
-                indexs.put(flag, tokenKind.ordinal());
-                maxKey = maxKey < flag ? flag : maxKey;
+    protected TokenStream tokenize() throws ParseException {
+        var result = new TokenStream(symbolTable, codes.length >> 2);
+        for (Token.TokenKind tokenKind; Objects.nonNull(tokenKind = scan()); ) {
+            if (tokenKind != Token.TokenKind.ANNOTATION) {
+                result.add(tokenKind.ordinal(), tokenPos, tokenLength, symbol);
             }
-        });
-        log.debug("maxKey:{}", maxKey);
-        return this;
+        }
+        return result;
     }
 
-
-    @Override
-    public Token nextToken() throws ParseException {
+    /**
+     * 读取下一个Token,Token的起始位置、词素长度和符号id记录在tokenPos、tokenLength和symbol中
+     *
+     * @return 读取到源码末尾时返回null
+     * @throws ParseException
+     */
+    private Token.TokenKind scan() throws ParseException {
         var pos = index;//记录每一个Token的起始位
-        Token result = null;
+        Token.TokenKind result = null;
         loop:
         do {
             nextChar();
-            switch (ch) {
-                //@formatter:off
-                case ' ': case '\t': case LF: case CR: case '\u0000':
+            switch (CharTable.of(ch)) {
+                case CharTable.SPACE:
                     break;
-                case 'A': case 'B': case 'C': case 'D': case 'E':
-                case 'F': case 'G': case 'H': case 'I': case 'J':
-                case 'K': case 'L': case 'M': case 'N': case 'O':
-                case 'P': case 'Q': case 'R': case 'S': case 'T':
-                case 'U': case 'V': case 'W': case 'X': case 'Y':
-                case 'Z':
-                case 'a': case 'b': case 'c': case 'd': case 'e':
-                case 'f': case 'g': case 'h': case 'i': case 'j':
-                case 'k': case 'l': case 'm': case 'n': case 'o':
-                case 'p': case 'q': case 'r': case 's': case 't':
-                case 'u': case 'v': case 'w': case 'x': case 'y':
-                case 'z':
-                case '$': case '_':
+                case CharTable.IDENT:
                     result = scanIdent(pos);
                     break loop;
-                case '0': case '1': case '2': case '3': case '4':
-                case '5': case '6': case '7': case '8': case '9':
+                case CharTable.DIGIT:
                     result = scanNumber(pos);
                     break loop;
-                case '\"':
+                case CharTable.QUOTE:
                     result = scanChars(pos);
                     break loop;
-                case '[': case ']': case '(': case ')':case '.':
-                case ',': case '{': case '}': case ';':
-                    //@formatter:on
+                case CharTable.SEPARATOR:
                     try {
                         addMorpheme();
                         result = getToken(pos);
                     } finally {
-                        sbuf = null;
+                        sp = 0;
                     }
                     break loop;
                 default:
-                    if (Utils.isChinese(ch)) {
-                        result = scanIdent(pos);//标识符支持中文
-                    } else {
-                        var token = scanOperator(pos);
-                        if (Objects.nonNull(token)) {
-                            result = token;
-                        }
-                    }
+                    result = scanOperator(pos);
                     break loop;
             }
         } while (ch != EOI);
@@ -170,17 +178,17 @@ public class Scanner implements Lexer {
      * @return
      * @throws ParseException
      */
-    private Token scanChars(int pos) throws ParseException {
+    private Token.TokenKind scanChars(int pos) throws ParseException {
         do {
             addMorpheme();
             nextChar();
         } while (ch != '\"' && ch != CR && ch != LF && ch != EOI);
-        if (ch != '\"') throw new ParseException(String.format("未结束的字符串文字:%s", new String(sbuf)));
+        if (ch != '\"') throw new ParseException(String.format("未结束的字符串文字:%s", new String(codes, bp, sp)));
         addMorpheme();
         try {
             return getToken(Token.TokenKind.CHARSLITERAL, pos);
         } finally {
-            sbuf = null;
+            sp = 0;
         }
     }
 
@@ -189,34 +197,28 @@ public class Scanner implements Lexer {
      *
      * @param pos
      * @return
+     * @throws ParseException
      */
-    private Token scanOperator(int pos) {
+    private Token.TokenKind scanOperator(int pos) throws ParseException {
         if (ch == EOI) return null;
         while (true) {
-            switch (ch) {
-                //@formatter:off
-                case '!': case '%': case '&': case '*':
-                case '?': case '+': case '-': case ':':
-                case '<': case '=': case '>': case '^':
-                case '|': case '~': case '@': case '/':
-                    break;
-                //@formatter:on
-                default:
-                    try {
-                        return getToken(pos);
-                    } finally {
-                        prevChar();
-                        sbuf = null;
-                    }
+            if (CharTable.of(ch) != CharTable.OPERATOR) {
+                if (sp == 0) throw new ParseException(String.format("非法字符:%s", ch));
+                try {
+                    return getToken(pos);
+                } finally {
+                    prevChar();
+                    sp = 0;
+                }
             }
             addMorpheme();
-            var tokenKind = getTokenKin(symbolTable.getAttribute(sbuf).flag);
+            var tokenKind = getTokenKin();
             if (tokenKind == Token.TokenKind.IDENTIFIER) {
                 try {
-                    sbuf = Arrays.copyOf(sbuf, sbuf.length - 1);
+                    sp--;
                     return getToken(pos);
                 } finally {
-                    sbuf = null;
+                    sp = 0;
                     prevChar();
                 }
             } else if (tokenKind == Token.TokenKind.ANNOTATION) {//处理注释
@@ -227,7 +229,7 @@ public class Scanner implements Lexer {
                     } while (ch != CR && ch != LF && ch != EOI);
                     return getToken(Token.TokenKind.ANNOTATION, pos);
                 } finally {
-                    sbuf = null;
+                    sp = 0;
                 }
             }
             nextChar();
@@ -240,27 +242,19 @@ public class Scanner implements Lexer {
      * @param pos
      * @return
      */
-    private Token scanNumber(int pos) {
+    private Token.TokenKind scanNumber(int pos) {
         boolean isPoint = false;
         while (true) {
-            switch (ch) {
-                //@formatter:off
-                case '0': case '1': case '2': case '3': case '4':
-                case '5': case '6': case '7': case '8': case '9':
-                    break;
-                case '.':
-                    isPoint = true;
-                    break;
-                //@formatter:on
-                default:
-                    try {
-                        return getToken(isPoint ? Token.TokenKind.FLOATLITERAL :
-                                isPoint ? Token.TokenKind.FLOATLITERAL :
-                                        Token.TokenKind.INTLITERAL, pos);
-                    } finally {
-                        prevChar();
-                        sbuf = null;
-                    }
+            if (ch == '.') {
+                isPoint = true;
+            } else if (CharTable.of(ch) != CharTable.DIGIT) {
+                try {
+                    return getToken(isPoint ? Token.TokenKind.FLOATLITERAL :
+                            Token.TokenKind.INTLITERAL, pos);
+                } finally {
+                    prevChar();
+                    sp = 0;
+                }
             }
             addMorpheme();
             nextChar();
@@ -273,35 +267,15 @@ public class Scanner implements Lexer {
      * @param pos
      * @return
      */
-    private Token scanIdent(int pos) {
+    private Token.TokenKind scanIdent(int pos) {
         while (true) {
-            switch (ch) {
-                //@formatter:off
-                case 'A': case 'B': case 'C': case 'D': case 'E':
-                case 'F': case 'G': case 'H': case 'I': case 'J':
-                case 'K': case 'L': case 'M': case 'N': case 'O':
-                case 'P': case 'Q': case 'R': case 'S': case 'T':
-                case 'U': case 'V': case 'W': case 'X': case 'Y':
-                case 'Z':
-                case 'a': case 'b': case 'c': case 'd': case 'e':
-                case 'f': case 'g': case 'h': case 'i': case 'j':
-                case 'k': case 'l': case 'm': case 'n': case 'o':
-                case 'p': case 'q': case 'r': case 's': case 't':
-                case 'u': case 'v': case 'w': case 'x': case 'y':
-                case 'z':
-                case '$': case '_':
-                case '0': case '1': case '2': case '3': case '4':
-                case '5': case '6': case '7': case '8': case '9':
-                    break;
-                //@formatter:on
-                default:
-                    if (Utils.isChinese(ch)) break;
-                    try {
-                        return getToken(pos);
-                    } finally {
-                        prevChar();//回溯上一个符号
-                        sbuf = null;
-                    }
+            if (!CharTable.isIdentPart(ch)) {
+                try {
+                    return getToken(pos);
+                } finally {
+                    prevChar();//回溯上一个符号
+                    sp = 0;
+                }
             }
             addMorpheme();
             nextChar();
@@ -309,11 +283,12 @@ public class Scanner implements Lexer {
     }
 
     /**
-     * 组装词素
+     * 组装词素,词素总是codes中连续的一段区间,因此仅需记录起始位置和长度
      */
     private void addMorpheme() {
-        sbuf = Objects.isNull(sbuf) ? new char[1] : Arrays.copyOf(sbuf, sbuf.length + 1);
-        sbuf[sbuf.length - 1] = ch;
+        if (sp++ == 0) {
+            bp = index - 1;
+        }
     }
 
     /**
@@ -323,24 +298,25 @@ public class Scanner implements Lexer {
      * @param pos
      * @return
      */
-    private Token getToken(Token.TokenKind tokenKind, int pos) {
-        var attribute = symbolTable.getAttribute(sbuf);
-        //根据属性对象的flag字段从反向索引表中获取出TokenKin的序数，再根据序数获取出对应的TokenKin
-        return new Token(attribute, Objects.nonNull(tokenKind) ? tokenKind :
-                getTokenKin(attribute.flag), pos);
+    private Token.TokenKind getToken(Token.TokenKind tokenKind, int pos) {
+        symbol = symbolTable.intern(codes, bp, sp);
+        tokenPos = pos;
+        tokenLength = sp;
+        return Objects.nonNull(tokenKind) ? tokenKind : getTokenKin();
     }
 
-    private Token getToken(int pos) {
+    private Token.TokenKind getToken(int pos) {
         return getToken(null, pos);
     }
 
     /**
-     * 获取TokenKind
+     * 根据当前词素从保留字表中获取TokenKind,不是保留字时即为标识符
      *
      * @return
      */
-    private Token.TokenKind getTokenKin(int flag) {
-        return flag <= maxKey ? Token.TokenKind.values()[indexs.get(flag)] : Token.TokenKind.IDENTIFIER;
+    private Token.TokenKind getTokenKin() {
+        var id = KEYWORDS.lookup(codes, bp, sp);
+        return id < 0 ? Token.TokenKind.IDENTIFIER : KEYWORD_KINDS[id];
     }
 
     @Override
@@ -378,12 +354,12 @@ public class Scanner implements Lexer {
         this.ch = ch;
     }
 
-    protected char[] getSbuf() {
-        return sbuf;
+    protected int getSp() {
+        return sp;
     }
 
-    protected void setSbuf(char[] sbuf) {
-        this.sbuf = sbuf;
+    protected void setSp(int sp) {
+        this.sp = sp;
     }
 
     protected int getIndex() {
@@ -403,16 +379,15 @@ public class Scanner implements Lexer {
                 ", LF=" + LF +
                 ", CR=" + CR +
                 ", symbolTable=" + symbolTable +
-                ", maxKey=" + maxKey +
-                ", indexs=" + indexs +
-                ", sbuf=" + Arrays.toString(sbuf) +
+                ", bp=" + bp +
+                ", sp=" + sp +
                 ", index=" + index +
                 '}';
     }
 
     public static void main(String[] agrs) throws ParseException {
         String code = "chars 啊;//测试";
-        Scanner scanner = new Scanner(code.toCharArray()).init();
+        Scanner scanner = new Scanner(code.toCharArray());
         while (true) {
             var token = scanner.nextToken();
             if (Objects.isNull(token)) break;
@@ -15,12 +15,13 @@
  */
 package com.github.redknife.tools.compiler.core.lexer;
 
-import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
 /**
  * 符号表
+ * <p>
+ * 采用开放寻址(线性探测)的方式存储符号,直接基于源码区间(codes, offset, length)计算散列值和比对,
+ * 查询已存在的符号时不产生任何对象分配。每个符号对应一个稳定的int类型符号id,即其添加顺序
  *
  * @author gao_xianglong@sina.com
  * @version 0.1-SNAPSHOT
@@ -28,13 +29,31 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class SymbolTable {
     /**
-     * 记录所有保留字长度
+     * 已添加的所有符号(保留字及标识符等词素)的长度之和,每添加一个符号即累加,
+     * 累加后的值作为该符号属性对象的flag
      */
     public int length;
-    public Map<Token.Chars, Token.Attribute> attributes;
+    /**
+     * 散列槽,存储符号id + 1,0表示空槽
+     */
+    private int[] slots;
+    /**
+     * 符号id对应的散列值
+     */
+    private int[] hashes;
+    /**
+     * 符号id对应的属性对象
+     */
+    private Token.Attribute[] attributes;
+    /**
+     * 符号数量
+     */
+    private int size;
 
     protected SymbolTable() {
-        attributes = new ConcurrentHashMap<>();
+        slots = new int[256];
+        hashes = new int[128];
+        attributes = new Token.Attribute[128];
     }
 
     /**
@@ -44,13 +63,132 @@ public class SymbolTable {
      * @return
      */
     public Token.Attribute getAttribute(char[] morpheme) {
-        var chars = new Token.Chars(morpheme);
-        var attribute = attributes.get(chars);
-        if (Objects.isNull(attribute)) {
-            length += morpheme.length;
-            attribute = new Token.Attribute(morpheme, length);
-            attributes.put(chars, attribute);
+        return getAttribute(morpheme, 0, morpheme.length);
+    }
+
+    /**
+     * 根据源码区间[offset, offset + length)从符号表中获取出对应的属性对象,
+     * 仅当需要添加新的符号时才会拷贝出词素
+     *
+     * @param codes
+     * @param offset
+     * @param length
+     * @return
+     */
+    public Token.Attribute getAttribute(char[] codes, int offset, int length) {
+        return attributes[intern(codes, offset, length)];
+    }
+
+    /**
+     * 根据符号id获取属性对象
+     *
+     * @param id
+     * @return
+     */
+    public Token.Attribute getAttribute(int id) {
+        return attributes[id];
+    }
+
+    /**
+     * 返回源码区间[offset, offset + length)对应的符号id,如果不存在就先添加
+     *
+     * @param codes
+     * @param offset
+     * @param length
+     * @return
+     */
+    public int intern(char[] codes, int offset, int length) {
+        var hash = hash(codes, offset, length);
+        var i = probe(hash, codes, offset, length);
+        if (slots[i] != 0) {
+            return slots[i] - 1;
+        }
+        var id = size++;
+        if (id == attributes.length) {
+            hashes = Arrays.copyOf(hashes, id << 1);
+            attributes = Arrays.copyOf(attributes, id << 1);
+        }
+        this.length += length;
+        hashes[id] = hash;
+        attributes[id] = new Token.Attribute(Arrays.copyOfRange(codes, offset, offset + length), this.length);
+        slots[i] = id + 1;
+        if (size << 1 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * 返回源码区间[offset, offset + length)对应的符号id,不存在时返回-1且不会添加
+     *
+     * @param codes
+     * @param offset
+     * @param length
+     * @return
+     */
+    public int lookup(char[] codes, int offset, int length) {
+        return slots[probe(hash(codes, offset, length), codes, offset, length)] - 1;
+    }
+
+    /**
+     * 线性探测,返回匹配符号所在的散列槽或第一个空槽
+     *
+     * @param hash
+     * @param codes
+     * @param offset
+     * @param length
+     * @return
+     */
+    private int probe(int hash, char[] codes, int offset, int length) {
+        var mask = slots.length - 1;
+        var i = hash & mask;
+        for (int slot; (slot = slots[i]) != 0; i = (i + 1) & mask) {
+            var id = slot - 1;
+            if (hashes[id] == hash && Arrays.equals(attributes[id].morpheme, 0, attributes[id].morpheme.length,
+                    codes, offset, offset + length)) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 返回符号数量
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 散列槽容量翻倍并重新分布所有符号
+     */
+    private void rehash() {
+        slots = new int[slots.length << 1];
+        var mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            var i = hashes[id] & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+    }
+
+    /**
+     * 计算源码区间的散列值
+     *
+     * @param codes
+     * @param offset
+     * @param length
+     * @return
+     */
+    private static int hash(char[] codes, int offset, int length) {
+        int h = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + codes[i];
         }
-        return attribute;
+        return h ^ (h >>> 16);
     }
-}
\ No newline at end of file
+}
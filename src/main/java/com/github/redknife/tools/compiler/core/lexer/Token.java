@@ -15,8 +15,6 @@
  */
 package com.github.redknife.tools.compiler.core.lexer;
 
-import java.util.Arrays;
-
 /**
  * 词法单元，每一个Token都对应着一个词素
  *
@@ -108,28 +106,4 @@ public class Token {
             return String.format("morpheme:%s, flag:%s", new String(morpheme), flag);
         }
     }
-
-    /**
-     * 对词素进行封装
-     */
-    static class Chars {
-        public char[] morpheme;
-
-        public Chars(char[] morpheme) {
-            this.morpheme = morpheme;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Chars)) return false;
-            Chars chars = (Chars) o;
-            return Arrays.equals(morpheme, chars.morpheme);
-        }
-
-        @Override
-        public int hashCode() {
-            return Arrays.hashCode(morpheme);
-        }
-    }
 }
\ No newline at end of file
@@ -19,7 +19,6 @@ import com.github.redknife.tools.compiler.exceptions.ParseException;
 import com.github.redknife.tools.compiler.utils.RedKnifeFileManager;
 
 import java.nio.CharBuffer;
-import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -31,25 +30,75 @@ import java.util.Objects;
  */
 public class TokenReader {
     private Scanner lexer;
+    /**
+     * 整个源文件的Token序列,回溯时直接复用,避免重复执行词法分析
+     */
+    private TokenStream tokens;
+    /**
+     * 下一个待返回Token的索引
+     */
+    private int cursor;
 
-    public TokenReader init(CharBuffer cs) {
-        lexer = new Scanner(RedKnifeFileManager.toArray(cs)).init();
+    public TokenReader init(CharBuffer cs) throws ParseException {
+        lexer = new Scanner(RedKnifeFileManager.toArray(cs));
+        tokens = lexer.tokenize();
         return this;
     }
 
-    public Token nextToken() throws ParseException {
-        Token result = null;
-        while (true) {
-            if ((result = lexer.nextToken()).tokenKind !=
-                    Token.TokenKind.ANNOTATION) {
-                break;
-            }
+    /**
+     * 读取下一个Token
+     *
+     * @return Token在TokenStream中的索引,读取到末尾时返回-1
+     */
+    public int nextToken() {
+        return cursor < tokens.size() ? cursor++ : -1;
+    }
+
+    /**
+     * 预读第n个Token(n从0开始),不移动读取位置
+     *
+     * @param n
+     * @return Token在TokenStream中的索引,超出末尾时返回-1
+     */
+    public int peekToken(int n) {
+        var index = cursor + n;
+        return index < tokens.size() ? index : -1;
+    }
+
+    /**
+     * 回退一个Token
+     */
+    public void prevToken() {
+        if (cursor > 0) {
+            cursor--;
         }
-        return result;
     }
 
-    public void prevToken(int pos) {
-        lexer.prevToken(pos);
+    /**
+     * 记录当前的Token索引
+     *
+     * @return
+     */
+    public int mark() {
+        return cursor;
+    }
+
+    /**
+     * 回溯到mark()所记录的Token索引
+     *
+     * @param mark
+     */
+    public void reset(int mark) {
+        cursor = mark;
+    }
+
+    /**
+     * 返回Token序列
+     *
+     * @return
+     */
+    public TokenStream getTokens() {
+        return tokens;
     }
 
     /**
@@ -82,12 +131,15 @@ public class TokenReader {
      * 重置词法分析器相关属性
      *
      * @param cb
+     * @throws ParseException
      */
-    public void reset(CharBuffer cb) {
+    public void reset(CharBuffer cb) throws ParseException {
         Objects.requireNonNull(lexer);
         lexer.setCodes(RedKnifeFileManager.toArray(cb));
         lexer.setIndex(0);
         lexer.setCh('\u0000');
-        lexer.setSbuf(null);
+        lexer.setSp(0);
+        tokens = lexer.tokenize();
+        cursor = 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core.lexer;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的Token序列,以若干并行的int[]记录每个Token的类型序数、起始位置、词素长度和符号id,
+ * 语法分析器通过索引访问,不再为每个Token创建对象
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 7:02 下午
+ */
+public class TokenStream {
+    private static final Token.TokenKind[] TOKEN_KINDS = Token.TokenKind.values();
+    /**
+     * TokenKind序数
+     */
+    private int[] kinds;
+    /**
+     * Token起始位置
+     */
+    private int[] positions;
+    /**
+     * 词素长度
+     */
+    private int[] lengths;
+    /**
+     * 符号id
+     */
+    private int[] symbols;
+    /**
+     * Token数量
+     */
+    private int size;
+    private SymbolTable symbolTable;
+
+    protected TokenStream(SymbolTable symbolTable, int capacity) {
+        this.symbolTable = symbolTable;
+        capacity = Math.max(capacity, 16);
+        kinds = new int[capacity];
+        positions = new int[capacity];
+        lengths = new int[capacity];
+        symbols = new int[capacity];
+    }
+
+    /**
+     * 追加一个Token
+     *
+     * @param kind
+     * @param pos
+     * @param length
+     * @param symbol
+     */
+    protected void add(int kind, int pos, int length, int symbol) {
+        if (size == kinds.length) {
+            var capacity = size << 1;
+            kinds = Arrays.copyOf(kinds, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+        }
+        kinds[size] = kind;
+        positions[size] = pos;
+        lengths[size] = length;
+        symbols[size] = symbol;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getKind(int index) {
+        return kinds[index];
+    }
+
+    public Token.TokenKind getTokenKind(int index) {
+        return TOKEN_KINDS[kinds[index]];
+    }
+
+    public int getPos(int index) {
+        return positions[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getSymbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * 返回Token对应的词素
+     *
+     * @param index
+     * @return
+     */
+    public char[] getMorpheme(int index) {
+        return symbolTable.getAttribute(symbols[index]).morpheme;
+    }
+
+    /**
+     * 将指定位置的Token还原为Token对象,调试用
+     *
+     * @param index
+     * @return
+     */
+    public Token getToken(int index) {
+        return new Token(symbolTable.getAttribute(symbols[index]), getTokenKind(index), positions[index]);
+    }
+}
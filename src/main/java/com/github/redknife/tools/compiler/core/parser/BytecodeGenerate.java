@@ -0,0 +1,681 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core.parser;
+
+import com.github.redknife.tools.compiler.core.tree.*;
+import com.github.redknife.tools.compiler.runtime.RK;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtPrimitiveType;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 直接由AST生成字节码,跳过java源码的拼接与javassist编译器的二次词法/语法分析,
+ * 只支持类型正确的程序,遇到无法处理的语法或语义错误时返回null,由调用方回退到源码生成方式
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 2:15 下午
+ */
+public class BytecodeGenerate implements Visitor {
+    private static final String RUNTIME = RK.class.getName();
+    private static final String STRING_BUILDER = "java.lang.StringBuilder";
+    private ClassPool classPool;
+    private CtClass stringType;
+    private CtClass ctClass;
+    private Bytecode bytecode;
+    /**
+     * 作用域链,记录变量名对应的局部变量槽位
+     */
+    private Deque<Map<String, Local>> scopes;
+    private int maxLocals;
+    /**
+     * 最近一次生成的表达式结果类型
+     */
+    private CtClass type;
+
+    public BytecodeGenerate(ClassPool classPool) {
+        this.classPool = classPool;
+        scopes = new ArrayDeque<>();
+    }
+
+    /**
+     * 生成单个编译单元对应的类
+     *
+     * @param tree
+     * @return 存在不支持的语法时返回null
+     * @throws Throwable
+     */
+    public CtClass generate(Tree tree) throws Throwable {
+        Objects.requireNonNull(tree);
+        ctClass = null;
+        try {
+            if (Objects.isNull(stringType)) {
+                stringType = classPool.get("java.lang.String");
+            }
+            for (Tree t : tree.getChilds()) {
+                t.accept(this, null);
+            }
+            return ctClass;
+        } catch (UnsupportedException e) {
+            if (Objects.nonNull(ctClass)) {
+                ctClass.detach();
+            }
+            return null;
+        } finally {
+            bytecode = null;
+            scopes.clear();
+        }
+    }
+
+    @Override
+    public void visitClassDecl(ClassDecl classDecl, String tab) throws Throwable {
+        ctClass = classPool.makeClass(classDecl.getName());
+        for (Tree t : classDecl.getChilds()) {
+            t.accept(this, tab);
+        }
+    }
+
+    @Override
+    public void visitMethodDecl(MethodDecl methodDecl, String tab) throws Throwable {
+        var classFile = ctClass.getClassFile();
+        bytecode = new Bytecode(classFile.getConstPool(), 0, 1);
+        maxLocals = 1;
+        for (Tree t : methodDecl.getChilds()) {
+            t.accept(this, tab);
+        }
+        bytecode.addOpcode(Opcode.RETURN);
+        bytecode.setMaxLocals(maxLocals);
+        var methodInfo = new MethodInfo(classFile.getConstPool(), "main", "([Ljava/lang/String;)V");
+        methodInfo.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.STATIC);
+        methodInfo.setCodeAttribute(bytecode.toCodeAttribute());
+        methodInfo.rebuildStackMapIf6(classPool, classFile);
+        ctClass.addMethod(CtMethod.make(methodInfo, ctClass));
+    }
+
+    @Override
+    public void visitBlock(Block block, String tab) throws Throwable {
+        scopes.push(new HashMap<>());
+        for (Tree t : block.getChilds()) {
+            if (!(t instanceof Other)) {//跳过'{'、';'和'}'
+                t.accept(this, tab);
+            }
+        }
+        scopes.pop();
+    }
+
+    @Override
+    public void visitVariableDecl(VariableDecl variableDecl, String tab) throws Throwable {
+        var childs = variableDecl.getChilds();
+        var value = childs.size() > 2 ? childs.get(1) : null;
+        Local local;
+        if (Objects.nonNull(variableDecl.getTypeTag())) {
+            if (Objects.nonNull(find(variableDecl.getName()))) {//重复声明交由源码生成方式报错
+                throw UnsupportedException.INSTANCE;
+            }
+            local = new Local(maxLocals++, typeOf(variableDecl.getTypeTag()));
+            scopes.peek().put(variableDecl.getName(), local);
+        } else {
+            local = lookup(variableDecl.getName());
+            if (Objects.isNull(value)) {
+                throw UnsupportedException.INSTANCE;
+            }
+        }
+        if (Objects.nonNull(value)) {
+            value.accept(this, tab);
+            coerce(type, local.type);
+        } else {//未赋初值时写入缺省值,避免校验器拒绝未初始化的槽位
+            if (local.type == stringType) {
+                bytecode.addOpcode(Opcode.ACONST_NULL);
+            } else if (local.type == CtClass.floatType) {
+                bytecode.addOpcode(Opcode.FCONST_0);
+            } else {
+                bytecode.addIconst(0);
+            }
+        }
+        bytecode.addStore(local.slot, local.type);
+    }
+
+    @Override
+    public void visitForDecl(ForDecl forDecl, String tab) throws Throwable {
+        var childs = forDecl.getChilds();
+        scopes.push(new HashMap<>());
+        childs.get(1).accept(this, tab);
+        var begin = bytecode.currentPc();
+        var exit = condition(childs.get(2));
+        if (childs.size() > 6) {
+            childs.get(6).accept(this, tab);
+        }
+        childs.get(4).accept(this, tab);
+        jump(Opcode.GOTO, begin);
+        patch(exit);
+        scopes.pop();
+    }
+
+    @Override
+    public void visitIf(If if_, String tab) throws Throwable {
+        var childs = if_.getChilds();
+        var ends = new int[childs.size()];
+        var count = 0;
+        var next = condition(childs.get(1));
+        childs.get(3).accept(this, tab);
+        for (int i = 4; i < childs.size(); i++) {
+            var branch = childs.get(i);
+            ends[count++] = jump(Opcode.GOTO);
+            patch(next);
+            if (branch.getTag() == Tree.Tag.ELSEIF) {
+                var temp = branch.getChilds();
+                next = condition(temp.get(1));
+                temp.get(3).accept(this, tab);
+            } else {
+                branch.getChilds().get(0).accept(this, tab);
+                next = -1;
+            }
+        }
+        if (next >= 0) {
+            patch(next);
+        }
+        for (int i = 0; i < count; i++) {
+            patch(ends[i]);
+        }
+    }
+
+    @Override
+    public void visitExpressionStatement(ExpressionStatement expressionStatement, String tab) throws Throwable {
+        var childs = expressionStatement.getChilds();
+        switch (expressionStatement.getTag()) {
+            case POSTINC:
+            case POSTDEC:
+                var delta = expressionStatement.getTag() == Tree.Tag.POSTINC ? 1 : -1;
+                if (!(childs.get(0) instanceof Ident)) {
+                    throw UnsupportedException.INSTANCE;
+                }
+                var local = lookup(childs.get(0).getName());
+                if (local.type == CtClass.intType && local.slot < 256) {
+                    bytecode.addOpcode(Opcode.IINC);
+                    bytecode.add(local.slot);
+                    bytecode.add(delta);
+                } else if (local.type == CtClass.intType || local.type == CtClass.floatType) {
+                    bytecode.addLoad(local.slot, local.type);
+                    bytecode.addIconst(delta);
+                    if (local.type == CtClass.floatType) {
+                        bytecode.addOpcode(Opcode.I2F);
+                        bytecode.addOpcode(Opcode.FADD);
+                    } else {
+                        bytecode.addOpcode(Opcode.IADD);
+                    }
+                    bytecode.addStore(local.slot, local.type);
+                } else {
+                    throw UnsupportedException.INSTANCE;
+                }
+                break;
+            default:
+                call(childs);
+        }
+    }
+
+    /**
+     * 生成对运行时支持类print/println的调用,其余方法调用交由源码生成方式处理
+     *
+     * @param childs
+     * @throws Throwable
+     */
+    private void call(List<Tree> childs) throws Throwable {
+        var target = childs.get(0).getChilds();
+        if (childs.size() != 3 || target.size() != 2 || !(target.get(0) instanceof Ident)) {
+            throw UnsupportedException.INSTANCE;
+        }
+        var name = target.get(0).getName();
+        if (!"print".equals(name) && !"println".equals(name)) {
+            throw UnsupportedException.INSTANCE;
+        }
+        childs.get(1).accept(this, null);
+        if (type == CtClass.doubleType) {//运行时支持类没有double重载,交由源码生成方式处理
+            throw UnsupportedException.INSTANCE;
+        }
+        var desc = type == stringType ? "Ljava/lang/String;" : descriptor(type);
+        bytecode.addInvokestatic(RUNTIME, name, "(" + desc + ")V");
+    }
+
+    @Override
+    public void visitLiteral(Literal literal, String tab) throws Throwable {
+        var value = literal.getName();
+        switch (literal.getTypeTag()) {
+            case INT:
+                if (value.length() > 1 && value.charAt(0) == '0') {//八进制字面量
+                    throw UnsupportedException.INSTANCE;
+                }
+                try {
+                    bytecode.addIconst(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    throw UnsupportedException.INSTANCE;
+                }
+                type = CtClass.intType;
+                break;
+            case FLOAT:
+                try {
+                    bytecode.addLdc2w(Double.parseDouble(value));
+                } catch (NumberFormatException e) {
+                    throw UnsupportedException.INSTANCE;
+                }
+                type = CtClass.doubleType;
+                break;
+            case BOOL:
+                bytecode.addIconst("true".equals(value) ? 1 : 0);
+                type = CtClass.booleanType;
+                break;
+            case CHARS:
+                bytecode.addLdc(unescape(value));
+                type = stringType;
+                break;
+            default:
+                throw UnsupportedException.INSTANCE;
+        }
+    }
+
+    @Override
+    public void visitIdent(Ident ident, String tab) throws Throwable {
+        var local = lookup(ident.getName());
+        bytecode.addLoad(local.slot, local.type);
+        type = local.type;
+    }
+
+    @Override
+    public void visitOther(Other other, String tab) throws Throwable {
+        if (Objects.nonNull(other.getName())) {
+            throw UnsupportedException.INSTANCE;
+        }
+        other.getChilds().get(1).accept(this, tab);//括号表达式
+    }
+
+    @Override
+    public void visitExpression(Expression expression, String tab) throws Throwable {
+        throw UnsupportedException.INSTANCE;
+    }
+
+    @Override
+    public void visitFieldAccess(FieldAccess fieldAccess, String tab) throws Throwable {
+        throw UnsupportedException.INSTANCE;
+    }
+
+    @Override
+    public void visitBinary(Binary binary, String tab) throws Throwable {
+        var left = binary.getChilds().get(0);
+        var right = binary.getChilds().get(2);
+        var leftType = typeOf(left);
+        var rightType = typeOf(right);
+        if (binary.getTag() == Tree.Tag.PLUS && (leftType == stringType || rightType == stringType)) {
+            bytecode.addNew(STRING_BUILDER);
+            bytecode.addOpcode(Opcode.DUP);
+            bytecode.addInvokespecial(STRING_BUILDER, "<init>", "()V");
+            append(left);
+            append(right);
+            bytecode.addInvokevirtual(STRING_BUILDER, "toString", "()Ljava/lang/String;");
+            type = stringType;
+            return;
+        }
+        var result = promote(leftType, rightType);
+        left.accept(this, tab);
+        coerce(type, result);
+        right.accept(this, tab);
+        coerce(type, result);
+        int opcode;
+        switch (binary.getTag()) {
+            case PLUS:
+                opcode = Opcode.IADD;
+                break;
+            case SUB:
+                opcode = Opcode.ISUB;
+                break;
+            case STAR:
+                opcode = Opcode.IMUL;
+                break;
+            case SLASH:
+                opcode = Opcode.IDIV;
+                break;
+            default:
+                throw UnsupportedException.INSTANCE;
+        }
+        //IADD/FADD/DADD等指令按int、long、float、double的顺序连续编号
+        bytecode.addOpcode(opcode + (result == CtClass.floatType ? 2 : result == CtClass.doubleType ? 3 : 0));
+        type = result;
+    }
+
+    /**
+     * 将表达式的值追加到栈顶的StringBuilder
+     *
+     * @param tree
+     * @throws Throwable
+     */
+    private void append(Tree tree) throws Throwable {
+        tree.accept(this, null);
+        var desc = type == stringType ? "Ljava/lang/String;" : descriptor(type);
+        bytecode.addInvokevirtual(STRING_BUILDER, "append", "(" + desc + ")Ljava/lang/StringBuilder;");
+    }
+
+    /**
+     * 生成条件判断,条件不成立时跳转,返回待回填的跳转指令位置
+     *
+     * @param tree
+     * @return
+     * @throws Throwable
+     */
+    private int condition(Tree tree) throws Throwable {
+        var tag = tree.getTag();
+        if (tree instanceof Binary || tag.compareTo(Tree.Tag.NE) < 0 || tag.compareTo(Tree.Tag.EQ) > 0) {
+            tree.accept(this, null);
+            if (type != CtClass.booleanType) {
+                throw UnsupportedException.INSTANCE;
+            }
+            return jump(Opcode.IFEQ);
+        }
+        var left = tree.getChilds().get(0);
+        var right = tree.getChilds().get(2);
+        var leftType = typeOf(left);
+        var rightType = typeOf(right);
+        if (isNumeric(leftType) && isNumeric(rightType)) {
+            var result = promote(leftType, rightType);
+            left.accept(this, null);
+            coerce(type, result);
+            right.accept(this, null);
+            coerce(type, result);
+            if (result == CtClass.intType) {
+                return jump(negate(tag, Opcode.IF_ICMPEQ));
+            }
+            var greater = tag == Tree.Tag.LT || tag == Tree.Tag.LE;//NaN参与比较时结果恒为false
+            if (result == CtClass.floatType) {
+                bytecode.addOpcode(greater ? Opcode.FCMPG : Opcode.FCMPL);
+            } else {
+                bytecode.addOpcode(greater ? Opcode.DCMPG : Opcode.DCMPL);
+            }
+            return jump(negate(tag, Opcode.IFEQ));
+        }
+        if (leftType != rightType || (tag != Tree.Tag.EQ && tag != Tree.Tag.NE)) {
+            throw UnsupportedException.INSTANCE;
+        }
+        left.accept(this, null);
+        right.accept(this, null);
+        if (leftType == stringType) {
+            return jump(tag == Tree.Tag.EQ ? Opcode.IF_ACMPNE : Opcode.IF_ACMPEQ);
+        }
+        return jump(tag == Tree.Tag.EQ ? Opcode.IF_ICMPNE : Opcode.IF_ICMPEQ);
+    }
+
+    /**
+     * 取比较运算取反后的跳转指令,base为IFEQ或IF_ICMPEQ,其后依次为NE、LT、GE、GT、LE
+     *
+     * @param tag
+     * @param base
+     * @return
+     */
+    private int negate(Tree.Tag tag, int base) {
+        switch (tag) {
+            case EQ:
+                return base + 1;
+            case NE:
+                return base;
+            case LT:
+                return base + 3;
+            case GE:
+                return base + 2;
+            case GT:
+                return base + 5;
+            default:
+                return base + 4;
+        }
+    }
+
+    /**
+     * 推导表达式类型,不生成字节码
+     *
+     * @param tree
+     * @return
+     * @throws UnsupportedException
+     */
+    private CtClass typeOf(Tree tree) throws UnsupportedException {
+        if (tree instanceof Literal) {
+            switch (((Literal) tree).getTypeTag()) {
+                case INT:
+                    return CtClass.intType;
+                case FLOAT:
+                    return CtClass.doubleType;
+                case BOOL:
+                    return CtClass.booleanType;
+                default:
+                    return stringType;
+            }
+        } else if (tree instanceof Ident) {
+            return lookup(tree.getName()).type;
+        } else if (tree instanceof Binary) {
+            var left = typeOf(tree.getChilds().get(0));
+            var right = typeOf(tree.getChilds().get(2));
+            if (tree.getTag() == Tree.Tag.PLUS && (left == stringType || right == stringType)) {
+                return stringType;
+            }
+            return promote(left, right);
+        } else if (tree instanceof Other && Objects.isNull(tree.getName())) {
+            return typeOf(tree.getChilds().get(1));
+        }
+        throw UnsupportedException.INSTANCE;
+    }
+
+    private CtClass typeOf(TypeTag typeTag) throws UnsupportedException {
+        switch (typeTag) {
+            case INT:
+                return CtClass.intType;
+            case FLOAT:
+                return CtClass.floatType;
+            case BOOL:
+                return CtClass.booleanType;
+            case CHARS:
+                return stringType;
+            default:
+                throw UnsupportedException.INSTANCE;
+        }
+    }
+
+    private boolean isNumeric(CtClass type) {
+        return type == CtClass.intType || type == CtClass.floatType || type == CtClass.doubleType;
+    }
+
+    /**
+     * 二元数值提升
+     *
+     * @param left
+     * @param right
+     * @return
+     * @throws UnsupportedException
+     */
+    private CtClass promote(CtClass left, CtClass right) throws UnsupportedException {
+        if (!isNumeric(left) || !isNumeric(right)) {
+            throw UnsupportedException.INSTANCE;
+        }
+        if (left == CtClass.doubleType || right == CtClass.doubleType) {
+            return CtClass.doubleType;
+        }
+        return left == CtClass.floatType || right == CtClass.floatType ? CtClass.floatType : CtClass.intType;
+    }
+
+    /**
+     * 将栈顶的值从from类型转换为to类型
+     *
+     * @param from
+     * @param to
+     * @throws UnsupportedException
+     */
+    private void coerce(CtClass from, CtClass to) throws UnsupportedException {
+        if (from == to) {
+            return;
+        }
+        if (!isNumeric(from) || !isNumeric(to)) {
+            throw UnsupportedException.INSTANCE;
+        }
+        if (from == CtClass.intType) {
+            bytecode.addOpcode(to == CtClass.floatType ? Opcode.I2F : Opcode.I2D);
+        } else if (from == CtClass.floatType) {
+            bytecode.addOpcode(to == CtClass.intType ? Opcode.F2I : Opcode.F2D);
+        } else {
+            bytecode.addOpcode(to == CtClass.intType ? Opcode.D2I : Opcode.D2F);
+        }
+    }
+
+    private String descriptor(CtClass type) {
+        return String.valueOf(((CtPrimitiveType) type).getDescriptor());
+    }
+
+    private Local lookup(String name) throws UnsupportedException {
+        var result = find(name);
+        if (Objects.isNull(result)) {//未声明的变量交由源码生成方式报错
+            throw UnsupportedException.INSTANCE;
+        }
+        return result;
+    }
+
+    private Local find(String name) {
+        for (Map<String, Local> scope : scopes) {
+            var local = scope.get(name);
+            if (Objects.nonNull(local)) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成目标待回填的跳转指令
+     *
+     * @param opcode
+     * @return 跳转指令位置
+     */
+    private int jump(int opcode) {
+        var pc = bytecode.currentPc();
+        bytecode.addOpcode(opcode);
+        bytecode.addIndex(0);
+        return pc;
+    }
+
+    /**
+     * 生成向回跳转到target的指令
+     *
+     * @param opcode
+     * @param target
+     */
+    private void jump(int opcode, int target) throws UnsupportedException {
+        var pc = bytecode.currentPc();
+        if (pc - target > -Short.MIN_VALUE) {
+            throw UnsupportedException.INSTANCE;
+        }
+        bytecode.addOpcode(opcode);
+        bytecode.addIndex(target - pc);
+    }
+
+    /**
+     * 将跳转指令的目标回填为当前位置
+     *
+     * @param pc
+     * @throws UnsupportedException
+     */
+    private void patch(int pc) throws UnsupportedException {
+        var offset = bytecode.currentPc() - pc;
+        if (offset > Short.MAX_VALUE) {
+            throw UnsupportedException.INSTANCE;
+        }
+        bytecode.write16bit(pc + 1, offset);
+    }
+
+    /**
+     * 处理字符串字面量中的转义字符
+     *
+     * @param value
+     * @return
+     * @throws UnsupportedException
+     */
+    private String unescape(String value) throws UnsupportedException {
+        var result = new StringBuilder(value.length());
+        for (int i = 1; i < value.length() - 1; i++) {
+            var c = value.charAt(i);
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            if (++i == value.length() - 1) {
+                throw UnsupportedException.INSTANCE;
+            }
+            switch (value.charAt(i)) {
+                case 'b':
+                    result.append('\b');
+                    break;
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'f':
+                    result.append('\f');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case '\'':
+                    result.append('\'');
+                    break;
+                case '\\':
+                    result.append('\\');
+                    break;
+                default:
+                    throw UnsupportedException.INSTANCE;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 局部变量
+     */
+    private static class Local {
+        private final int slot;
+        private final CtClass type;
+
+        private Local(int slot, CtClass type) {
+            this.slot = slot;
+            this.type = type;
+        }
+    }
+
+    /**
+     * 存在当前方式不支持的语法,不记录异常栈
+     */
+    private static class UnsupportedException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private static final UnsupportedException INSTANCE = new UnsupportedException();
+
+        private UnsupportedException() {
+            super(null, null, false, false);
+        }
+    }
+}
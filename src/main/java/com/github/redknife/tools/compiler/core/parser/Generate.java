@@ -16,17 +16,19 @@
 package com.github.redknife.tools.compiler.core.parser;
 
 import com.github.redknife.tools.compiler.core.tree.*;
-import com.github.redknife.tools.compiler.exceptions.FileWriteException;
+import com.github.redknife.tools.compiler.runtime.RK;
+import com.github.redknife.tools.compiler.utils.Constants;
 import com.github.redknife.tools.compiler.utils.Context;
+import com.github.redknife.tools.compiler.utils.RedKnifeFileManager;
 import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.CtMethod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * 生成字节码
@@ -40,12 +42,27 @@ public class Generate implements Visitor {
     private Context context;
     private ClassPool classPool;
     private StringBuffer sbuf;
+    private BytecodeGenerate bytecodeGenerate;
+    private Optimizer optimizer;
     private Logger log = LoggerFactory.getLogger(Generate.class);
+    /**
+     * 由运行时支持类提供的方法
+     */
+    private static final Set<String> RUNTIME_METHODS = Set.of("print", "println");
 
     public Generate(Context context) {
+        this(context, new ClassPool(true));
+    }
+
+    public Generate(Context context, ClassPool classPool) {
         this.context = context;
+        this.classPool = classPool;
         sbuf = new StringBuffer();
-        classPool = ClassPool.getDefault();
+        optimizer = new Optimizer();
+        classPool.importPackage(RK.class.getPackageName());//以简单类名引用运行时支持类,避免javassist逐段解析全限定名
+        if (Constants.CODEGEN_BYTECODE.equals(context.getCodegen())) {
+            bytecodeGenerate = new BytecodeGenerate(classPool);
+        }
     }
 
     /**
@@ -56,13 +73,32 @@ public class Generate implements Visitor {
      */
     public void compile(List<Tree> trees) throws Throwable {
         for (Tree t : trees) {
-            visit(t, null);
-            var out = context.getOut();
-            if (!new File(out).isDirectory()) {
-                throw new FileWriteException(String.format("%s不是目录", out));
+            var ctClass = generate(t);
+            RedKnifeFileManager.writeClass(context.getOut(), ctClass.getName(), ctClass.toBytecode());
+            ctClass.detach();//写入后即从ClassPool中移除,避免缓存无限增长
+        }
+    }
+
+    /**
+     * 优化语法树后生成单个编译单元对应的类,不写入文件
+     *
+     * @param tree
+     * @return
+     * @throws Throwable
+     */
+    public CtClass generate(Tree tree) throws Throwable {
+        optimizer.optimize(tree);
+        if (Objects.nonNull(bytecodeGenerate)) {
+            var result = bytecodeGenerate.generate(tree);
+            if (Objects.nonNull(result)) {
+                return result;
+            }
+            if (context.isDebug()) {
+                log.info("存在直接生成字节码不支持的语法, 回退到源码生成方式");
             }
-            ctClass.writeFile(out);
         }
+        visit(tree, null);
+        return ctClass;
     }
 
     @Override
@@ -104,6 +140,17 @@ public class Generate implements Visitor {
         }
     }
 
+    @Override
+    public void visitExpressionStatement(ExpressionStatement expressionStatement, String tab) throws Throwable {
+        var childs = expressionStatement.getChilds();
+        if (expressionStatement.getTag() == Tree.Tag.NO_TAG && !childs.isEmpty()) {
+            var target = childs.get(0).getChilds();
+            if (target.size() == 2 && target.get(0) instanceof Ident && RUNTIME_METHODS.contains(target.get(0).getName())) {
+                sbuf.append(RK.class.getSimpleName()).append('.');//输出方法统一调用运行时支持类
+            }
+        }
+    }
+
     @Override
     public void visitLiteral(Literal literal, String tab) throws Throwable {
         sbuf.append(literal.getName());
@@ -123,39 +170,7 @@ public class Generate implements Visitor {
         try {
             var src = sbuf.toString();
             if (Objects.nonNull(src) && !src.isEmpty()) {
-                var method = CtMethod.make("public static void println(String value){" +
-                        "System.out.println(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void println(float value){" +
-                        "System.out.println(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void println(int value){" +
-                        "System.out.println(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void println(boolean value){" +
-                        "System.out.println(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void print(String value){" +
-                        "System.out.print(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void print(float value){" +
-                        "System.out.print(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void print(int value){" +
-                        "System.out.print(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make("public static void print(boolean value){" +
-                        "System.out.print(value);" +
-                        "}", ctClass);
-                ctClass.addMethod(method);
-                method = CtMethod.make(sbuf.toString(), ctClass);
+                var method = CtMethod.make(sbuf.toString(), ctClass);
                 ctClass.addMethod(method);
             }
         } finally {
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core.parser;
+
+import com.github.redknife.tools.compiler.core.tree.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 语法树优化,在语法解析之后、中间代码生成之前执行,
+ * 按java语义折叠INT/FLOAT字面量之间的四则运算,并化简x*1、x+0等恒等式,
+ * 同时剪除条件为常量的if/else-if/else分支
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 3:40 下午
+ */
+public class Optimizer {
+    /**
+     * 作用域链,记录变量名对应的类型
+     */
+    private Deque<Map<String, TypeTag>> scopes;
+
+    public Optimizer() {
+        scopes = new ArrayDeque<>();
+    }
+
+    /**
+     * 就地优化语法树
+     *
+     * @param tree
+     */
+    public void optimize(Tree tree) {
+        Objects.requireNonNull(tree);
+        try {
+            scopes.push(new HashMap<>());
+            statement(tree);
+        } finally {
+            scopes.clear();
+        }
+    }
+
+    /**
+     * 遍历语句,折叠其中的表达式
+     *
+     * @param tree
+     */
+    private void statement(Tree tree) {
+        var scoped = tree instanceof Block || tree instanceof ForDecl;
+        if (scoped) {
+            scopes.push(new HashMap<>());
+        }
+        var childs = tree.getChilds();
+        for (int i = 0; i < childs.size(); i++) {
+            var child = childs.get(i);
+            if (isExpression(child)) {
+                childs.set(i, fold(child));
+            } else if (!(child instanceof Ident)) {
+                statement(child);
+                if (child.getTag() == Tree.Tag.IF) {
+                    var result = prune(child);
+                    if (Objects.isNull(result)) {//所有分支都不可达时删除整条语句
+                        childs.remove(i--);
+                    } else {
+                        childs.set(i, result);
+                    }
+                }
+            }
+        }
+        if (tree instanceof VariableDecl) {
+            var typeTag = ((VariableDecl) tree).getTypeTag();
+            if (Objects.nonNull(typeTag)) {//初始化表达式折叠完成后再声明变量
+                scopes.peek().put(tree.getName(), typeTag);
+            }
+        }
+        if (scoped) {
+            scopes.pop();
+        }
+    }
+
+    /**
+     * 剪除if语句中条件恒为false的分支,条件恒为true的分支之后的所有分支均不可达,
+     * 只剩下一个必然执行的分支时直接替换为其代码块
+     *
+     * @param tree
+     * @return 替换后的语句,不存在可达分支时返回null
+     */
+    private Tree prune(Tree tree) {
+        var childs = tree.getChilds();
+        var branches = new ArrayList<Tree>();//每个分支由'(' 条件 ')' block组成
+        branches.add(tree);
+        Tree otherwise = null;
+        for (int i = 4; i < childs.size(); i++) {
+            var child = childs.get(i);
+            if (child.getTag() == Tree.Tag.ELSEIF) {
+                branches.add(child);
+            } else {
+                otherwise = child.getChilds().get(0);
+            }
+        }
+        var changed = false;
+        If result = null;
+        for (Tree branch : branches) {
+            var condition = condition(branch.getChilds().get(1));
+            if (Objects.isNull(condition)) {
+                var temp = new If(Objects.isNull(result) ? Tree.Tag.IF : Tree.Tag.ELSEIF);
+                temp.getChilds().addAll(branch.getChilds().subList(0, 4));
+                if (Objects.isNull(result)) {
+                    result = temp;
+                } else {
+                    result.getChilds().add(temp);
+                }
+                continue;
+            }
+            changed = true;
+            if (condition) {
+                otherwise = branch.getChilds().get(3);
+                break;
+            }
+        }
+        if (!changed) {
+            return tree;
+        }
+        if (Objects.isNull(result)) {
+            return otherwise;
+        }
+        if (Objects.nonNull(otherwise)) {
+            var else_ = new If(Tree.Tag.ELSE);
+            else_.getChilds().add(otherwise);
+            result.getChilds().add(else_);
+        }
+        return result;
+    }
+
+    /**
+     * 计算常量条件,非常量时返回null
+     *
+     * @param tree
+     * @return
+     */
+    private Boolean condition(Tree tree) {
+        if (tree instanceof Literal && ((Literal) tree).getTypeTag() == TypeTag.BOOL) {
+            return "true".equals(tree.getName());
+        }
+        if (!isExpression(tree) || tree instanceof Binary || tree instanceof Literal || isParens(tree)) {
+            return null;
+        }
+        var tag = tree.getTag();
+        var left = tree.getChilds().get(0);
+        var right = tree.getChilds().get(2);
+        var leftValue = constant(left);
+        var rightValue = constant(right);
+        if (Objects.isNull(leftValue) || Objects.isNull(rightValue)) {
+            var leftBool = condition(left);
+            var rightBool = condition(right);
+            if (Objects.isNull(leftBool) || Objects.isNull(rightBool) || !(left instanceof Literal) ||
+                    !(right instanceof Literal) || (tag != Tree.Tag.EQ && tag != Tree.Tag.NE)) {
+                return null;
+            }
+            return (leftBool == rightBool) == (tag == Tree.Tag.EQ);
+        }
+        int compare;
+        if (leftValue instanceof Integer && rightValue instanceof Integer) {
+            compare = Integer.compare(leftValue.intValue(), rightValue.intValue());
+        } else {
+            double x = leftValue.doubleValue(), y = rightValue.doubleValue();
+            compare = x < y ? -1 : x > y ? 1 : 0;
+        }
+        switch (tag) {
+            case LT:
+                return compare < 0;
+            case GT:
+                return compare > 0;
+            case LE:
+                return compare <= 0;
+            case GE:
+                return compare >= 0;
+            case NE:
+                return compare != 0;
+            default:
+                return compare == 0;
+        }
+    }
+
+    private boolean isExpression(Tree tree) {
+        return tree instanceof Binary || tree instanceof Literal || isParens(tree) ||
+                (tree instanceof Expression && tree.getTag().compareTo(Tree.Tag.NE) >= 0 &&
+                        tree.getTag().compareTo(Tree.Tag.EQ) <= 0);
+    }
+
+    private boolean isParens(Tree tree) {
+        return tree instanceof Other && Objects.isNull(tree.getName()) && tree.getChilds().size() == 3;
+    }
+
+    /**
+     * 折叠表达式,返回替换后的节点
+     *
+     * @param tree
+     * @return
+     */
+    private Tree fold(Tree tree) {
+        var childs = tree.getChilds();
+        if (isParens(tree)) {
+            var child = fold(childs.get(1));
+            childs.set(1, child);
+            if (child instanceof Literal || child instanceof Ident || isParens(child)) {
+                return child;//括号内只剩单个操作数时去掉括号
+            }
+            return tree;
+        }
+        if (!(tree instanceof Expression) || tree instanceof Literal || tree instanceof Ident ||
+                tree instanceof FieldAccess) {
+            return tree;
+        }
+        childs.set(0, fold(childs.get(0)));
+        childs.set(2, fold(childs.get(2)));
+        if (!(tree instanceof Binary)) {
+            return tree;
+        }
+        var left = childs.get(0);
+        var right = childs.get(2);
+        var leftValue = constant(left);
+        var rightValue = constant(right);
+        if (Objects.nonNull(leftValue) && Objects.nonNull(rightValue)) {
+            var result = evaluate(tree.getTag(), leftValue, rightValue);
+            return Objects.nonNull(result) ? result : tree;
+        }
+        return simplify(tree.getTag(), left, leftValue, right, rightValue, tree);
+    }
+
+    /**
+     * 计算两个数值常量的四则运算结果,无法用字面量表示时返回null
+     *
+     * @param tag
+     * @param left
+     * @param right
+     * @return
+     */
+    private Tree evaluate(Tree.Tag tag, Number left, Number right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            int x = left.intValue(), y = right.intValue(), result;
+            switch (tag) {
+                case PLUS:
+                    result = x + y;
+                    break;
+                case SUB:
+                    result = x - y;
+                    break;
+                case STAR:
+                    result = x * y;
+                    break;
+                default:
+                    if (y == 0) {//保留运行时的除零异常
+                        return null;
+                    }
+                    result = x / y;
+            }
+            if (result == Integer.MIN_VALUE) {
+                return null;
+            }
+            return literal(TypeTag.INT, String.valueOf(result), result < 0);
+        }
+        double x = left.doubleValue(), y = right.doubleValue(), result;
+        switch (tag) {
+            case PLUS:
+                result = x + y;
+                break;
+            case SUB:
+                result = x - y;
+                break;
+            case STAR:
+                result = x * y;
+                break;
+            default:
+                result = x / y;
+        }
+        var value = Double.toString(result);
+        if (Double.isNaN(result) || Double.isInfinite(result) || value.indexOf('E') >= 0) {
+            return null;
+        }
+        return literal(TypeTag.FLOAT, value, value.charAt(0) == '-');
+    }
+
+    /**
+     * 化简恒等式,x为浮点数时x+0可能改变-0.0的符号,因此加法仅化简整数
+     *
+     * @return
+     */
+    private Tree simplify(Tree.Tag tag, Tree left, Number leftValue, Tree right, Number rightValue, Tree tree) {
+        var leftType = typeOf(left);
+        var rightType = typeOf(right);
+        var rightInt = rightValue instanceof Integer ? rightValue.intValue() : null;
+        var leftInt = leftValue instanceof Integer ? leftValue.intValue() : null;
+        var leftNumeric = leftType == TypeTag.INT || leftType == TypeTag.FLOAT;
+        var rightNumeric = rightType == TypeTag.INT || rightType == TypeTag.FLOAT;
+        switch (tag) {
+            case PLUS:
+                if (leftType == TypeTag.INT && Objects.equals(rightInt, 0)) {
+                    return left;
+                }
+                if (rightType == TypeTag.INT && Objects.equals(leftInt, 0)) {
+                    return right;
+                }
+                break;
+            case SUB:
+                if ((leftType == TypeTag.INT || leftType == TypeTag.FLOAT) && Objects.equals(rightInt, 0)) {
+                    return left;
+                }
+                break;
+            case STAR:
+                if (leftNumeric && Objects.equals(rightInt, 1)) {
+                    return left;
+                }
+                if (rightNumeric && Objects.equals(leftInt, 1)) {
+                    return right;
+                }
+                //x*0只在被丢弃的操作数求值不会抛出异常时化简,避免吞掉如1/z*0中的除零异常
+                if ((leftType == TypeTag.INT && Objects.equals(rightInt, 0) && isDiscardable(left)) ||
+                        (rightType == TypeTag.INT && Objects.equals(leftInt, 0) && isDiscardable(right))) {
+                    return literal(TypeTag.INT, "0", false);
+                }
+                break;
+            case SLASH:
+                if (leftNumeric && Objects.equals(rightInt, 1)) {
+                    return left;
+                }
+        }
+        return tree;
+    }
+
+    /**
+     * 操作数是否可以被直接丢弃,只有变量或字面量求值时不会抛出异常,包含运算(如除法)的操作数一律保留
+     *
+     * @param tree
+     * @return
+     */
+    private boolean isDiscardable(Tree tree) {
+        if (isParens(tree)) {
+            return isDiscardable(tree.getChilds().get(1));
+        }
+        return tree instanceof Ident || tree instanceof Literal;
+    }
+
+    /**
+     * 返回数值常量的值,INT为Integer,FLOAT为Double,非常量时返回null
+     *
+     * @param tree
+     * @return
+     */
+    private Number constant(Tree tree) {
+        if (isParens(tree)) {
+            return constant(tree.getChilds().get(1));
+        }
+        if (!(tree instanceof Literal)) {
+            return null;
+        }
+        var value = tree.getName();
+        try {
+            switch (((Literal) tree).getTypeTag()) {
+                case INT:
+                    var digits = value.charAt(0) == '-' ? value.substring(1) : value;
+                    if (digits.length() > 1 && digits.charAt(0) == '0') {//八进制字面量不参与折叠
+                        return null;
+                    }
+                    return Integer.parseInt(value);
+                case FLOAT:
+                    return Double.parseDouble(value);
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 推导表达式类型,无法确定时返回null
+     *
+     * @param tree
+     * @return
+     */
+    private TypeTag typeOf(Tree tree) {
+        if (isParens(tree)) {
+            return typeOf(tree.getChilds().get(1));
+        } else if (tree instanceof Literal) {
+            return ((Literal) tree).getTypeTag();
+        } else if (tree instanceof Ident) {
+            for (Map<String, TypeTag> scope : scopes) {
+                var typeTag = scope.get(tree.getName());
+                if (Objects.nonNull(typeTag)) {
+                    return typeTag;
+                }
+            }
+        } else if (tree instanceof Binary) {
+            var left = typeOf(tree.getChilds().get(0));
+            var right = typeOf(tree.getChilds().get(2));
+            if (left == TypeTag.CHARS || right == TypeTag.CHARS) {
+                return tree.getTag() == Tree.Tag.PLUS ? TypeTag.CHARS : null;
+            }
+            if (left == TypeTag.INT && right == TypeTag.INT) {
+                return TypeTag.INT;
+            }
+            if ((left == TypeTag.INT || left == TypeTag.FLOAT) && (right == TypeTag.INT || right == TypeTag.FLOAT)) {
+                return TypeTag.FLOAT;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 构建字面量节点,负数需要包裹括号,避免与前面的运算符拼接成"--"
+     *
+     * @param typeTag
+     * @param value
+     * @param negative
+     * @return
+     */
+    private Tree literal(TypeTag typeTag, String value, boolean negative) {
+        var result = new Literal(Tree.Tag.NO_TAG, typeTag, value);
+        if (!negative) {
+            return result;
+        }
+        var parens = new Other(Tree.Tag.NO_TAG);
+        parens.getChilds().add(new Other(Tree.Tag.NO_TAG, "("));
+        parens.getChilds().add(result);
+        parens.getChilds().add(new Other(Tree.Tag.NO_TAG, ")"));
+        return parens;
+    }
+}
@@ -53,13 +53,13 @@ import java.util.Objects;
  */
 public class RedKnifeParser implements Parser {
     /**
-     * 当前Token
+     * 当前Token在TokenStream中的索引,-1表示已读取到末尾
      */
-    private Token token;
+    private int token = -1;
     /**
-     * 上一个Token
+     * 上一个Token的索引
      */
-    private Token prevToken;
+    private int prevToken = -1;
     private TokenReader reader;
     private Logger log = LoggerFactory.getLogger(RedKnifeParser.class);
 
@@ -67,8 +67,9 @@ public class RedKnifeParser implements Parser {
      * 初始化词法分析器
      *
      * @param cb
+     * @throws ParseException
      */
-    private void init(CharBuffer cb) {
+    private void init(CharBuffer cb) throws ParseException {
         reader = new TokenReader().init(cb);
     }
 
@@ -82,6 +83,7 @@ public class RedKnifeParser implements Parser {
         } else {
             reader.reset(cb);//重设词法分析器相关属性值
         }
+        token = prevToken = -1;
         var compilationUnit = new CompilationUnit(Tree.Tag.NO_TAG);
         var classDecl = new ClassDecl(Tree.Tag.CLASSDEF, className);
         var methodDecl = new MethodDecl(Tree.Tag.METHODDEF, TypeTag.VOID, "main");
@@ -103,10 +105,10 @@ public class RedKnifeParser implements Parser {
      */
     private VariableDecl charsDecl() throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
-        var begin = token.pos;//记录错误开始位置
+        var begin = getPos();//记录错误开始位置
         if (isTokenKind(Token.TokenKind.CHARS)) {
             nextToken();
             if (isTokenKind(Token.TokenKind.IDENTIFIER)) {
@@ -157,10 +159,10 @@ public class RedKnifeParser implements Parser {
      */
     private VariableDecl boolDecl() throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
-        var begin = token.pos;
+        var begin = getPos();
         if (isTokenKind(Token.TokenKind.BOOL)) {
             nextToken();
             if (isTokenKind(Token.TokenKind.IDENTIFIER)) {
@@ -210,10 +212,10 @@ public class RedKnifeParser implements Parser {
 
     private VariableDecl floatDecl() throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
-        var begin = token.pos;
+        var begin = getPos();
         if (isTokenKind(Token.TokenKind.FLOAT)) {
             nextToken();
             if (isTokenKind(Token.TokenKind.IDENTIFIER)) {
@@ -264,10 +266,10 @@ public class RedKnifeParser implements Parser {
      */
     private VariableDecl intDecl() throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
-        var begin = token.pos;
+        var begin = getPos();
         if (isTokenKind(Token.TokenKind.INT)) {
             nextToken();
             if (isTokenKind(Token.TokenKind.IDENTIFIER)) {
@@ -318,10 +320,10 @@ public class RedKnifeParser implements Parser {
      */
     private Tree ifDecl() throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
-        var begin = token.pos;
+        var begin = getPos();
         if (isTokenKind(Token.TokenKind.IF)) {
             var result = new If(Tree.Tag.IF);
             nextToken();
@@ -338,8 +340,8 @@ public class RedKnifeParser implements Parser {
                             result.getChilds().add(child);//添加block语句
                         }
                         while (true) {//循环解析else-if语句
-                            var temp = nextToken();
-                            if (Objects.isNull(temp)) {
+                            var mark = reader.mark();
+                            if (nextToken() < 0) {
                                 error(begin);
                             } else if (isTokenKind(Token.TokenKind.ELSE)) {
                                 nextToken();
@@ -369,7 +371,7 @@ public class RedKnifeParser implements Parser {
                                         error(begin);
                                     }
                                 } else {
-                                    prevToken(temp.pos);
+                                    reader.reset(mark);
                                     break;
                                 }
                             } else {
@@ -378,7 +380,7 @@ public class RedKnifeParser implements Parser {
                             }
                         }
                         nextToken();
-                        if (Objects.isNull(token)) {
+                        if (token < 0) {
                             error(begin);
                         } else if (isTokenKind(Token.TokenKind.ELSE)) {
                             var else_ = new If(Tree.Tag.ELSE);
@@ -413,10 +415,10 @@ public class RedKnifeParser implements Parser {
      */
     private Tree forDecl() throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
-        var begin = token.pos;
+        var begin = getPos();
         if (isTokenKind(Token.TokenKind.FOR)) {
             var result = new ForDecl(Tree.Tag.FORLOOP);
             nextToken();
@@ -513,41 +515,50 @@ public class RedKnifeParser implements Parser {
      */
     private Tree block(int begin) throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         }
         if (isTokenKind(Token.TokenKind.LBRACE)) {
             var result = new Block(Tree.Tag.NO_TAG);
             result.getChilds().add(new Other(Tree.Tag.NO_TAG, getMorpheme()));
             while (true) {
-                Tree c1 = null;
-                Tree c2 = null;
-                Tree c3 = null;
-                Tree c4 = null;
-                if (Objects.nonNull(c1 = variableDecl())) {//解析字段声明
-                    result.getChilds().add(c1);
-                } else if (Objects.nonNull(c2 = expressionStatement(begin))) {//解析表达式语句
-                    nextToken();
-                    if (isTokenKind(Token.TokenKind.SEMI)) {
-                        result.getChilds().add(c2);
-                        result.getChilds().add(new Other(Tree.Tag.NO_TAG, getMorpheme()));
-                    } else {
-                        error(begin);
+                Tree child = null;
+                var tokenKind = peekTokenKind(0);
+                if (Objects.nonNull(tokenKind)) {
+                    switch (tokenKind) {//根据首个Token选择语句类型,无需试探性解析
+                        case INT:
+                        case FLOAT:
+                        case CHARS:
+                        case BOOL:
+                            child = variableDecl();//解析字段声明
+                            break;
+                        case FOR:
+                            child = forDecl();//解析for循环语句声明
+                            break;
+                        case IF:
+                            child = ifDecl();//解析if流程控制语句
+                            break;
+                        case RBRACE:
+                            break;
+                        case IDENTIFIER://id之后不是'='时按表达式语句解析
+                            child = peekTokenKind(1) == Token.TokenKind.EQ ? variableDecl() ://解析赋值语句
+                                    expressionStatementDecl(begin, result);
+                            break;
+                        default:
+                            child = expressionStatementDecl(begin, result);//解析表达式语句
                     }
-                } else if (Objects.nonNull(c3 = forDecl())) {//解析for循环语句声明
-                    result.getChilds().add(c3);
-                } else if (Objects.nonNull(c4 = ifDecl())) {//解析if流程控制语句
-                    result.getChilds().add(c4);
+                }
+                if (Objects.nonNull(child)) {
+                    result.getChilds().add(child);
                 }
                 nextToken();
-                if (Objects.isNull(token)) {
+                if (token < 0) {
                     error(begin);
                 } else if (isTokenKind(Token.TokenKind.RBRACE)) {//允许方法体为空
                     result.getChilds().add(new Other(Tree.Tag.NO_TAG, getMorpheme()));
                     return result;
                 } else {
-                    if (Objects.isNull(c1) && Objects.isNull(c2) &&
-                            Objects.isNull(c3) && Objects.isNull(c4)) {
+                    if (Objects.isNull(child)) {
                         error(begin);//不满足语法规范时抛出异常
                     }
                     prevToken();
@@ -559,6 +570,28 @@ public class RedKnifeParser implements Parser {
         return null;
     }
 
+    /**
+     * 解析以';'结尾的表达式语句,表达式直接添加到代码块中,返回值为其后的';'
+     *
+     * @param begin
+     * @param result
+     * @return
+     * @throws Throwable
+     */
+    private Tree expressionStatementDecl(int begin, Block result) throws Throwable {
+        var child = expressionStatement(begin);
+        if (Objects.nonNull(child)) {
+            nextToken();
+            if (isTokenKind(Token.TokenKind.SEMI)) {
+                result.getChilds().add(child);
+                child = new Other(Tree.Tag.NO_TAG, getMorpheme());
+            } else {
+                error(begin);
+            }
+        }
+        return child;
+    }
+
     /**
      * 解析变量声明
      * variableDecl -> intDecl | floatDecl | charsDecl | boolDecl | assignmentStatement
@@ -567,20 +600,24 @@ public class RedKnifeParser implements Parser {
      * @throws Throwable
      */
     private VariableDecl variableDecl() throws Throwable {
-        var result = intDecl();
-        if (Objects.isNull(result)) {
-            result = floatDecl();
-        }
-        if (Objects.isNull(result)) {
-            result = charsDecl();
-        }
-        if (Objects.isNull(result)) {
-            result = boolDecl();
+        var tokenKind = peekTokenKind(0);
+        if (Objects.isNull(tokenKind)) {
+            return null;
         }
-        if (Objects.isNull(result)) {
-            result = assignmentStatement();
+        switch (tokenKind) {
+            case INT:
+                return intDecl();
+            case FLOAT:
+                return floatDecl();
+            case CHARS:
+                return charsDecl();
+            case BOOL:
+                return boolDecl();
+            case IDENTIFIER:
+                return assignmentStatement();
+            default:
+                return null;
         }
-        return result;
     }
 
     /**
@@ -591,11 +628,12 @@ public class RedKnifeParser implements Parser {
      * @throws Throwable
      */
     private VariableDecl assignmentStatement() throws Throwable {
-        var temp = nextToken();
-        if (Objects.isNull(token)) {
+        var mark = reader.mark();
+        nextToken();
+        if (token < 0) {
             return null;
         }
-        int begin = token.pos;
+        int begin = getPos();
         if (isTokenKind(Token.TokenKind.IDENTIFIER)) {
             var result = new VariableDecl(Tree.Tag.VARDEF, getMorpheme());
             nextToken();
@@ -614,7 +652,7 @@ public class RedKnifeParser implements Parser {
                     error(begin);
                 }
             } else {
-                prevToken(temp.pos);
+                reader.reset(mark);
             }
         } else {
             prevToken();
@@ -635,7 +673,7 @@ public class RedKnifeParser implements Parser {
         Tree result = left;
         while (true) {
             nextToken();
-            if (Objects.isNull(token)) {
+            if (token < 0) {
                 break;
             }
             if (isTokenKind(Token.TokenKind.PLUS) || isTokenKind(Token.TokenKind.SUB)) {
@@ -674,7 +712,7 @@ public class RedKnifeParser implements Parser {
         Tree result = left;
         while (true) {
             nextToken();
-            if (Objects.isNull(token)) {
+            if (token < 0) {
                 break;
             }
             if (isTokenKind(Token.TokenKind.STAR) || isTokenKind(Token.TokenKind.SLASH)) {
@@ -707,7 +745,7 @@ public class RedKnifeParser implements Parser {
      */
     private Tree primary(int begin) throws Throwable {
         nextToken();
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             return null;
         } else if (isTokenKind(Token.TokenKind.IDENTIFIER)) {
             return new Ident(Tree.Tag.NO_TAG, getMorpheme());
@@ -827,25 +865,45 @@ public class RedKnifeParser implements Parser {
      *
      * @throws Throwable
      */
-    private Token nextToken() throws Throwable {
+    private int nextToken() throws Throwable {
         Objects.requireNonNull(reader);
-        if (Objects.nonNull(token)) {
+        if (token >= 0) {
             prevToken = token;
         }
         token = reader.nextToken();
         return token;
     }
 
+    /**
+     * 预读第n个Token的类型(n从0开始),不移动读取位置
+     *
+     * @param n
+     * @return 超出末尾时返回null
+     */
+    private Token.TokenKind peekTokenKind(int n) {
+        var index = reader.peekToken(n);
+        return index >= 0 ? reader.getTokens().getTokenKind(index) : null;
+    }
+
+    /**
+     * 获取当前Token的起始位置
+     *
+     * @return
+     */
+    private int getPos() {
+        return reader.getTokens().getPos(token);
+    }
+
     /**
      * 获取Token类型
      *
      * @return
      */
     private Token.TokenKind getTokenKind() {
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             token = prevToken;
         }
-        return token.tokenKind;
+        return reader.getTokens().getTokenKind(token);
     }
 
     /**
@@ -854,7 +912,7 @@ public class RedKnifeParser implements Parser {
      * @return
      */
     private String getMorpheme() {
-        return Objects.nonNull(token) ? new String(token.attribute.morpheme) : null;
+        return token >= 0 ? new String(reader.getTokens().getMorpheme(token)) : null;
     }
 
     /**
@@ -871,11 +929,7 @@ public class RedKnifeParser implements Parser {
      * 返回上一个Token
      */
     private void prevToken() {
-        reader.prevToken(token.pos);
-    }
-
-    private void prevToken(int pos) {
-        reader.prevToken(pos);
+        reader.prevToken();
     }
 
     /**
@@ -897,9 +951,10 @@ public class RedKnifeParser implements Parser {
      * @return
      */
     private int getEnd() {
-        if (Objects.isNull(token)) {
+        if (token < 0) {
             token = prevToken;
         }
-        return token.pos + token.length;
+        var tokens = reader.getTokens();
+        return tokens.getPos(token) + tokens.getLength(token);
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.launcher;
+
+import com.github.redknife.tools.compiler.utils.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * 守护进程的轻量客户端,将入参转发给守护进程并输出目标程序的执行结果,
+ * 不初始化日志等任何编译器资源,入参与red-knife-compiler一致,另支持--port <value>指定守护进程端口。
+ * 请求首先发送从令牌文件中读取的令牌,因此只有守护进程的属主才能提交编译请求
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 7:45 下午
+ */
+public class Client {
+    /**
+     * 发送编译请求并输出响应
+     *
+     * @param args
+     * @return 进程退出码
+     * @throws Throwable
+     */
+    private int request(String[] args) throws Throwable {
+        var port = Constants.DAEMON_PORT;
+        var forward = new ArrayList<String>(args.length);
+        for (int i = 0; i < args.length; i++) {
+            var temp = args[i];
+            if ("--port".equals(temp) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (("--in".equals(temp) || "--out".equals(temp)) && i + 1 < args.length) {
+                forward.add(temp);
+                forward.add(new File(args[++i]).getAbsolutePath());//守护进程的工作目录与客户端不同
+            } else {
+                forward.add(temp);
+            }
+        }
+        var token = Files.readString(Daemon.tokenFile(port), StandardCharsets.UTF_8).trim();
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            out.writeUTF(token);
+            out.writeInt(forward.size());
+            for (String arg : forward) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            var result = 0;
+            while (true) {
+                var type = in.readByte();
+                if (type == Daemon.FRAME_END) {
+                    System.out.flush();
+                    return result;
+                }
+                var value = in.readUTF();
+                if (type == Daemon.FRAME_ERROR) {
+                    System.err.print(value);
+                    result = 1;
+                } else {
+                    System.out.print(value);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.exit(new Client().request(args));
+        } catch (Throwable e) {
+            System.err.println(String.format("无法连接守护进程: %s", e));
+            System.exit(1);
+        }
+    }
+}
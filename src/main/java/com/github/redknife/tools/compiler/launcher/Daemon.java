@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.launcher;
+
+import com.github.redknife.tools.compiler.runtime.RK;
+import com.github.redknife.tools.compiler.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+
+/**
+ * 编译守护进程,常驻内存并通过本地回环端口接收编译请求,
+ * 省去了每次编译时启动JVM、初始化日志和加载Javassist的开销。
+ * 启动时生成随机令牌并写入用户主目录下仅属主可读写的令牌文件,请求的首个字段必须是该令牌,
+ * 避免同一主机上的其它用户借助守护进程以当前用户的身份编译和执行代码;
+ * 请求为令牌、入参个数及各个入参,每个请求独立解析出自身的编译上下文;
+ * 响应由若干帧组成,每帧为1个字节的类型及其内容,以结束帧表示请求处理完毕,
+ * 编译失败或目标程序执行失败时回传错误帧
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 7:45 下午
+ */
+public class Daemon {
+    /**
+     * 目标程序的输出
+     */
+    protected static final byte FRAME_OUTPUT = 'O';
+    /**
+     * 编译失败的异常信息
+     */
+    protected static final byte FRAME_ERROR = 'E';
+    /**
+     * 结束帧
+     */
+    protected static final byte FRAME_END = 'X';
+    /**
+     * 单帧的最大字符数,保证writeUTF编码后不超过65535字节
+     */
+    private static final int FRAME_CHARS = 16384;
+    /**
+     * 令牌的字节数
+     */
+    private static final int TOKEN_BYTES = 32;
+    private int port;
+    private byte[] token;
+    private Logger log = LoggerFactory.getLogger(Daemon.class);
+
+    public Daemon(int port) {
+        this.port = port;
+    }
+
+    /**
+     * 启动守护进程,只监听本地回环地址
+     *
+     * @throws Throwable
+     */
+    public void start() throws Throwable {
+        var executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (var server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            var tokenFile = tokenFile(server.getLocalPort());
+            if (Files.deleteIfExists(tokenFile)) {//上一次守护进程被强制终止(如kill -9)时遗留的令牌文件
+                log.warn("删除遗留的令牌文件: {}", tokenFile);
+            }
+            token = writeToken(tokenFile).getBytes(StandardCharsets.UTF_8);
+            log.info("守护进程已启动, 监听端口: {}, 令牌文件: {}, Pid: {}", server.getLocalPort(), tokenFile, Constants.PID);
+            tokenFile.toFile().deleteOnExit();//正常退出或收到SIGTERM时删除令牌文件,SIGKILL时会遗留,由下一次启动时删除
+            while (!Thread.currentThread().isInterrupted()) {
+                var socket = server.accept();
+                socket.setSoTimeout(Constants.DAEMON_READ_TIMEOUT_MILLIS);//避免不发送请求的连接一直占用处理线程
+                executor.execute(() -> handle(socket));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 守护进程令牌文件的路径,不同端口的守护进程使用各自的令牌文件
+     *
+     * @param port
+     * @return
+     */
+    protected static Path tokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"), String.format("%s-%s", Constants.DAEMON_TOKEN_FILE, port));
+    }
+
+    /**
+     * 生成随机令牌并写入令牌文件,文件以仅属主可读写的权限新建,已存在时创建失败,不沿用其它文件的权限
+     *
+     * @param tokenFile
+     * @return
+     * @throws Throwable
+     */
+    private String writeToken(Path tokenFile) throws Throwable {
+        var bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        var value = String.format("%064x", new BigInteger(1, bytes));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            var file = Files.createFile(tokenFile).toFile();
+            file.setReadable(false, false);
+            file.setWritable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(true, true);
+        }
+        Files.writeString(tokenFile, value, StandardCharsets.UTF_8);
+        return value;
+    }
+
+    /**
+     * 处理单个编译请求,目标程序的输出被重定向后回传给客户端
+     *
+     * @param socket
+     */
+    private void handle(Socket socket) {
+        var begin = System.currentTimeMillis();
+        try (socket; var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            //先校验令牌,令牌错误时不解析任何入参
+            if (!MessageDigest.isEqual(token, in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+                log.warn("拒绝令牌错误的编译请求: {}", socket.getRemoteSocketAddress());
+                write(out, FRAME_ERROR, "守护进程令牌错误" + Constants.LINE);
+                out.writeByte(FRAME_END);
+                out.flush();
+                return;
+            }
+            var args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            log.info("收到编译请求: {}", String.join(" ", args));
+            var buffer = new ByteArrayOutputStream();
+            String error = null;
+            var console = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+            RK.redirect(console);
+            try {
+                var context = new Main().parse(args, console);
+                //为null时帮助或版本信息已写入缓冲区,作为正常输出回传
+                if (Objects.nonNull(context) && !new com.github.redknife.tools.compiler.core.Main(context).compile()) {
+                    error = "目标程序执行失败";
+                }
+            } catch (Throwable e) {
+                log.error("{}", Constants.EXCEPTION_PREFIX, e);
+                error = String.format("%s: %s", Constants.EXCEPTION_PREFIX, e);
+            } finally {
+                RK.redirect(null);
+                console.flush();
+            }
+            write(out, FRAME_OUTPUT, buffer.toString(StandardCharsets.UTF_8));
+            if (Objects.nonNull(error)) {
+                write(out, FRAME_ERROR, error + Constants.LINE);
+            }
+            out.writeByte(FRAME_END);
+            out.flush();
+            log.info("编译请求处理完毕, 耗时: {}ms", System.currentTimeMillis() - begin);
+        } catch (SocketTimeoutException e) {
+            log.warn("读取编译请求超时, 关闭连接: {}", socket.getRemoteSocketAddress());
+        } catch (Throwable e) {
+            log.error("编译请求处理失败", e);
+        }
+    }
+
+    /**
+     * 按帧写出内容,超出单帧上限时拆分为多帧
+     *
+     * @param out
+     * @param type
+     * @param value
+     * @throws Throwable
+     */
+    private void write(DataOutputStream out, byte type, String value) throws Throwable {
+        for (int i = 0; i < value.length(); i += FRAME_CHARS) {
+            out.writeByte(type);
+            out.writeUTF(value.substring(i, Math.min(value.length(), i + FRAME_CHARS)));
+        }
+    }
+}
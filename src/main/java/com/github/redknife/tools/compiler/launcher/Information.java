@@ -43,7 +43,8 @@ public class Information {
         log.info(String.format("Initial heap size is %s (usedsize=%s, maxsize=%s)",
                 getCapacityUnit(Constants.INIT_HEAP), getCapacityUnit(Constants.USE_HEAP),
                 getCapacityUnit(Constants.MAX_HEAP)));
-        log.info("Param: --sourcecode-path:{}, --output-path:{}", context.getIn(), context.getOut());
+        log.info("Param: --sourcecode-path:{}, --output-path:{}, --jobs:{}, --run-jobs:{}, --codegen:{}",
+                context.getIn(), context.getOut(), context.getJobs(), context.getRunJobs(), context.getCodegen());
         log.info("Pid: {}", Constants.PID);
 
     }
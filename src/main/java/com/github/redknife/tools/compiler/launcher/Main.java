@@ -21,6 +21,7 @@ import com.github.redknife.tools.compiler.utils.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.PrintStream;
 import java.util.Objects;
 
 /**
@@ -34,19 +35,67 @@ public class Main {
     /**
      * 源码目录地址
      */
-    private static String in;
+    private String in;
     /**
      * 是否开启调试模式
      */
-    private static boolean isDebug;
+    private boolean isDebug;
     /**
      * 中间代码输出路径地址,缺省为操作系统的临时目录
      */
-    private static String out = Constants.OUTPUT_PATH;
+    private String out = Constants.OUTPUT_PATH;
     /**
      * 是否编译后执行
      */
-    private static boolean execute;
+    private boolean execute;
+    /**
+     * 并行编译的线程数,缺省为1,即串行编译
+     */
+    private int jobs = 1;
+    /**
+     * 中间代码生成方式,缺省为先生成java源码再交由javassist编译
+     */
+    private String codegen = Constants.CODEGEN_SOURCE;
+    /**
+     * 执行时是否逐行刷新输出,缺省缓冲输出
+     */
+    private boolean lineFlush;
+    /**
+     * 是否只在内存中编译并执行,不写入.class文件
+     */
+    private boolean inMemory;
+    /**
+     * 是否增量编译,跳过源码与编译器版本均未变化的源文件
+     */
+    private boolean incremental;
+    /**
+     * 是否持续监听源码目录,源文件变化后在当前JVM中重新编译
+     */
+    private boolean watch;
+    /**
+     * 是否以守护进程方式启动
+     */
+    private boolean daemon;
+    /**
+     * 守护进程监听的本地端口
+     */
+    private int port = Constants.DAEMON_PORT;
+    /**
+     * 并发执行目标程序的线程数,缺省为1,即依次执行
+     */
+    private int runJobs = 1;
+    /**
+     * 基准测试模式下每个目标程序的测量次数,缺省为0,即不开启基准测试
+     */
+    private int bench;
+    /**
+     * 基准测试模式下每个目标程序的预热次数
+     */
+    private int warmup = Constants.BENCH_WARMUP;
+    /**
+     * 帮助和版本信息的输出流,守护进程中为回传给客户端的缓冲区
+     */
+    private PrintStream console = System.out;
     private static Logger log = LoggerFactory.getLogger(Main.class);
 
     /**
@@ -61,12 +110,50 @@ public class Main {
                     "--out <value>)");
         }
         if (!parseParam(args)) System.exit(0);
-        Objects.requireNonNull(in, "入参--in <value>不允许为空");
-        var context = new Context.Builder(in).out(out).isDebug(isDebug).execute(execute).build();
+        if (daemon) {
+            new Daemon(port).start();
+            return;
+        }
+        var context = buildContext();
         Information.print(context);
         new com.github.redknife.tools.compiler.core.Main(context).compile();//执行编译
     }
 
+    /**
+     * 将守护进程收到的入参解析为编译上下文,帮助或版本信息写入console并返回null
+     *
+     * @param args
+     * @param console
+     * @return
+     * @throws ParameterParsingErrorException
+     */
+    protected Context parse(String[] args, PrintStream console) throws ParameterParsingErrorException {
+        this.console = Objects.requireNonNull(console);
+        if (Objects.isNull(args) || args.length < 1) {
+            throw new ParameterParsingErrorException("缺少相关入参(--in <value> " +
+                    "--out <value>)");
+        }
+        if (!parseParam(args)) {
+            return null;
+        }
+        if (daemon || watch) {
+            throw new ParameterParsingErrorException("编译请求不支持--daemon和--watch");
+        }
+        return buildContext();
+    }
+
+    /**
+     * 构建编译上下文
+     *
+     * @return
+     */
+    private Context buildContext() {
+        Objects.requireNonNull(in, "入参--in <value>不允许为空");
+        return new Context.Builder(in).out(out).isDebug(isDebug).execute(execute).jobs(jobs)
+                .codegen(codegen).lineFlush(lineFlush)
+                .inMemory(inMemory).incremental(incremental).watch(watch).runJobs(runJobs).bench(bench).warmup(warmup).build();
+    }
+
     /**
      * 入参解析
      *
@@ -85,6 +172,22 @@ public class Main {
                 case "--out":
                     out = args[++i];
                     break;
+                case "-j":
+                case "--jobs":
+                    jobs = parseNumber("--jobs", args[++i], 1);
+                    break;
+                case "--run-jobs":
+                    runJobs = parseNumber("--run-jobs", args[++i], 1);
+                    break;
+                case "--bench":
+                    bench = parseNumber("--bench", args[++i], 1);
+                    break;
+                case "--warmup":
+                    warmup = parseNumber("--warmup", args[++i], 0);
+                    break;
+                case "--codegen":
+                    codegen = parseCodegen(args[++i]);
+                    break;
                 case "-d":
                 case "-debug":
                 case "--debug":
@@ -95,19 +198,48 @@ public class Main {
                 case "-execute":
                     execute = true;
                     break;
+                case "--line-flush":
+                    lineFlush = true;
+                    break;
+                case "--in-memory":
+                    inMemory = true;
+                    break;
+                case "--incremental":
+                    incremental = true;
+                    break;
+                case "--watch":
+                    watch = true;
+                    break;
+                case "--daemon":
+                    daemon = true;
+                    break;
+                case "--port":
+                    port = parseNumber("--port", args[++i], 1);
+                    break;
                 case "-v":
                 case "-version":
                 case "--version":
-                    System.out.println(String.format("version:%s", Constants.VERSION));
+                    console.println(String.format("version:%s", Constants.VERSION));
                     result = false;
                     break loop;
                 case "-h":
                 case "-help":
                 case "--help":
-                    System.out.println(String.format("操作和入参:\n" +
+                    console.println(String.format("操作和入参:\n" +
                             "\t-h -help --help               打印使用规则\n" +
                             "\t-d -debug --debug             开启调试信息, 缺省关闭\n" +
                             "\t-e -execute --execute         编译结束是否立即运行, 缺省不运行\n" +
+                            "\t--line-flush                  运行时逐行刷新输出, 缺省缓冲输出\n" +
+                            "\t--in-memory                   字节码只保存在内存中并直接执行, 不写入--out目录\n" +
+                            "\t--incremental                 增量编译, 跳过源码与编译器版本均未变化的源文件\n" +
+                            "\t--watch                       监听源码目录, 源文件变化后立即重新编译(及运行)发生变化的源文件\n" +
+                            "\t--daemon                      以守护进程方式启动, 通过本地端口接收编译请求\n" +
+                            "\t--port         <value>        守护进程监听的本地端口, 缺省为7070\n" +
+                            "\t-j --jobs      <value>        并行编译的线程数, 缺省为1\n" +
+                            "\t--run-jobs     <value>        并发执行目标程序的线程数, 缺省为1\n" +
+                            "\t--bench        <value>        基准测试模式, 每个目标程序重复执行的测量次数\n" +
+                            "\t--warmup       <value>        基准测试模式下的预热次数, 缺省为10\n" +
+                            "\t--codegen      <value>        代码生成方式(source|bytecode), 缺省为source\n" +
                             "\t--in           <value>        源代码目录地址\n" +
                             "\t--out          <value>        中间代码的输出目录地址, 缺省为操作系统临时目录下\n" +
                             "\t--version      <value>        输出当前版本号"));
@@ -120,6 +252,41 @@ public class Main {
         return result;
     }
 
+    /**
+     * 解析线程数、迭代次数等整数入参
+     *
+     * @param name
+     * @param value
+     * @param min   允许的最小值
+     * @return
+     * @throws ParameterParsingErrorException
+     */
+    private int parseNumber(String name, String value, int min) throws ParameterParsingErrorException {
+        try {
+            var result = Integer.parseInt(value);
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            //交由下方统一抛出异常
+        }
+        throw new ParameterParsingErrorException(String.format("无效入参(%s %s)", name, value));
+    }
+
+    /**
+     * 解析代码生成方式
+     *
+     * @param value
+     * @return
+     * @throws ParameterParsingErrorException
+     */
+    private String parseCodegen(String value) throws ParameterParsingErrorException {
+        if (Constants.CODEGEN_SOURCE.equals(value) || Constants.CODEGEN_BYTECODE.equals(value)) {
+            return value;
+        }
+        throw new ParameterParsingErrorException(String.format("无效入参(--codegen %s)", value));
+    }
+
     public static void main(String[] args) {
         try {
             new Main().start(args);
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.runtime;
+
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * 目标程序的运行时支持类,生成的字节码统一静态调用此类中的输出方法,
+ * 不再向每个类中注入print/println
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 3:05 下午
+ */
+public final class RK {
+    /**
+     * 缓冲区容量,超出后写入标准输出
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String LINE = System.lineSeparator();
+    /**
+     * 每个线程独立的输出缓冲区,目标程序在单个线程内执行,无需同步
+     */
+    private static final ThreadLocal<Sink> SINK = ThreadLocal.withInitial(Sink::new);
+
+    private RK() {
+    }
+
+    /**
+     * 开启或关闭当前线程的输出缓冲,关闭前会先刷新已缓冲的内容
+     *
+     * @param buffered
+     */
+    public static void setBuffered(boolean buffered) {
+        var sink = SINK.get();
+        if (!buffered) {
+            sink.capture = false;
+            sink.flush();
+        }
+        sink.buffered = buffered;
+    }
+
+    /**
+     * 将当前线程的输出重定向到指定的输出流,传入null时恢复为标准输出
+     *
+     * @param out
+     */
+    public static void redirect(PrintStream out) {
+        var sink = SINK.get();
+        sink.flush();
+        sink.out = out;
+    }
+
+    /**
+     * 将当前线程缓冲区中的内容写入标准输出
+     */
+    public static void flush() {
+        SINK.get().flush();
+    }
+
+    /**
+     * 捕获当前线程后续的所有输出,缓冲区写满时也不写入标准输出
+     */
+    public static void capture() {
+        var sink = SINK.get();
+        sink.flush();
+        sink.buffered = true;
+        sink.capture = true;
+    }
+
+    /**
+     * 结束捕获并返回捕获到的输出
+     *
+     * @return
+     */
+    public static String release() {
+        var sink = SINK.get();
+        var result = sink.buffer.toString();
+        sink.buffer.setLength(0);
+        sink.buffered = false;
+        sink.capture = false;
+        if (sink.buffer.capacity() > BUFFER_SIZE) {//释放捕获大量输出时扩容的缓冲区
+            sink.buffer = new StringBuilder(BUFFER_SIZE);
+        }
+        return result;
+    }
+
+    public static void println(String value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value).append(LINE);
+            sink.checkCapacity();
+        } else {
+            sink.out().println(value);
+        }
+    }
+
+    public static void println(float value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value).append(LINE);
+            sink.checkCapacity();
+        } else {
+            sink.out().println(value);
+        }
+    }
+
+    public static void println(int value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value).append(LINE);
+            sink.checkCapacity();
+        } else {
+            sink.out().println(value);
+        }
+    }
+
+    public static void println(boolean value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value).append(LINE);
+            sink.checkCapacity();
+        } else {
+            sink.out().println(value);
+        }
+    }
+
+    public static void print(String value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value);
+            sink.checkCapacity();
+        } else {
+            sink.out().print(value);
+        }
+    }
+
+    public static void print(float value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value);
+            sink.checkCapacity();
+        } else {
+            sink.out().print(value);
+        }
+    }
+
+    public static void print(int value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value);
+            sink.checkCapacity();
+        } else {
+            sink.out().print(value);
+        }
+    }
+
+    public static void print(boolean value) {
+        var sink = SINK.get();
+        if (sink.buffered) {
+            sink.buffer.append(value);
+            sink.checkCapacity();
+        } else {
+            sink.out().print(value);
+        }
+    }
+
+    /**
+     * 线程的输出状态
+     */
+    private static class Sink {
+        private StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+        /**
+         * 是否缓冲输出,缺省直接写入标准输出
+         */
+        private boolean buffered;
+        /**
+         * 是否捕获输出,捕获期间缓冲区不会写入标准输出
+         */
+        private boolean capture;
+        /**
+         * 重定向的输出流,为null时写入标准输出
+         */
+        private PrintStream out;
+
+        private PrintStream out() {
+            return Objects.nonNull(out) ? out : System.out;
+        }
+
+        private void checkCapacity() {
+            if (!capture && buffer.length() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (capture) {
+                return;
+            }
+            if (buffer.length() > 0) {
+                out().append(buffer);
+                buffer.setLength(0);
+            }
+            out().flush();
+        }
+    }
+}
@@ -40,6 +40,16 @@ public class Constants {
     public final static String VERSION = "0.2-SNAPSHOT";
     public static final String LINE = System.getProperty("line.separator");
     public final static String EXCEPTION_PREFIX = "编译失败";
+    public final static int PIPELINE_QUEUE_CAPACITY = 16;
+    public final static String CODEGEN_SOURCE = "source";
+    public final static String CODEGEN_BYTECODE = "bytecode";
+    public final static int BENCH_WARMUP = 10;
+    public final static long MAPPED_READ_THRESHOLD = 1L << 20;
+    public final static String BUILD_INDEX_FILE = ".redknife-index";
+    public final static long WATCH_DEBOUNCE_MILLIS = 100L;
+    public final static int DAEMON_PORT = 7070;
+    public final static String DAEMON_TOKEN_FILE = ".redknife-daemon";
+    public final static int DAEMON_READ_TIMEOUT_MILLIS = 10000;
 
     public final static String JAVA_RUNTIME_TIME = System.getProperty("java.runtime.name");
     public final static String JAVA_RUNTIME_VERSION = System.getProperty("java.runtime.version");
@@ -27,12 +27,30 @@ public class Context {
     private String out;
     private boolean execute;
     private boolean isDebug;
+    private int jobs;
+    private String codegen;
+    private boolean lineFlush;
+    private boolean inMemory;
+    private boolean incremental;
+    private boolean watch;
+    private int runJobs;
+    private int bench;
+    private int warmup;
 
     private Context(Builder builder) {
         this.in = builder.in;
         this.out = builder.out;
         this.execute = builder.execute;
         this.isDebug = builder.isDebug;
+        this.jobs = builder.jobs;
+        this.codegen = builder.codegen;
+        this.lineFlush = builder.lineFlush;
+        this.inMemory = builder.inMemory;
+        this.incremental = builder.incremental;
+        this.watch = builder.watch;
+        this.runJobs = builder.runJobs;
+        this.bench = builder.bench;
+        this.warmup = builder.warmup;
     }
 
     public static class Builder {
@@ -40,6 +58,15 @@ public class Context {
         private String out;
         private boolean execute;
         private boolean isDebug;
+        private int jobs = 1;
+        private String codegen = Constants.CODEGEN_SOURCE;
+        private boolean lineFlush;
+        private boolean inMemory;
+        private boolean incremental;
+        private boolean watch;
+        private int runJobs = 1;
+        private int bench;
+        private int warmup = Constants.BENCH_WARMUP;
 
         public Builder(String in) {
             this.in = in;
@@ -63,6 +90,51 @@ public class Context {
             this.isDebug = isDebug;
             return this;
         }
+
+        public Builder jobs(int jobs) {
+            this.jobs = jobs;
+            return this;
+        }
+
+        public Builder codegen(String codegen) {
+            this.codegen = codegen;
+            return this;
+        }
+
+        public Builder lineFlush(boolean lineFlush) {
+            this.lineFlush = lineFlush;
+            return this;
+        }
+
+        public Builder inMemory(boolean inMemory) {
+            this.inMemory = inMemory;
+            return this;
+        }
+
+        public Builder incremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public Builder watch(boolean watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        public Builder runJobs(int runJobs) {
+            this.runJobs = runJobs;
+            return this;
+        }
+
+        public Builder bench(int bench) {
+            this.bench = bench;
+            return this;
+        }
+
+        public Builder warmup(int warmup) {
+            this.warmup = warmup;
+            return this;
+        }
     }
 
     public String getIn() {
@@ -81,6 +153,42 @@ public class Context {
         return isDebug;
     }
 
+    public int getJobs() {
+        return jobs;
+    }
+
+    public String getCodegen() {
+        return codegen;
+    }
+
+    public boolean isLineFlush() {
+        return lineFlush;
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public int getRunJobs() {
+        return runJobs;
+    }
+
+    public int getBench() {
+        return bench;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
     @Override
     public String toString() {
         return "Context{" +
@@ -88,6 +196,15 @@ public class Context {
                 ", out='" + out + '\'' +
                 ", execute='" + execute + '\'' +
                 ", isDebug=" + isDebug +
+                ", jobs=" + jobs +
+                ", codegen='" + codegen + '\'' +
+                ", lineFlush=" + lineFlush +
+                ", inMemory=" + inMemory +
+                ", incremental=" + incremental +
+                ", watch=" + watch +
+                ", runJobs=" + runJobs +
+                ", bench=" + bench +
+                ", warmup=" + warmup +
                 '}';
     }
 }
@@ -16,15 +16,26 @@
 package com.github.redknife.tools.compiler.utils;
 
 import com.github.redknife.tools.compiler.exceptions.FileReadException;
+import com.github.redknife.tools.compiler.exceptions.FileWriteException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.Objects;
 
 /**
@@ -38,58 +49,105 @@ public class RedKnifeFileManager {
     private static Logger log = LoggerFactory.getLogger(RedKnifeFileManager.class);
 
     /**
-     * 将源文件内容解析到ByteBuffer中
+     * 源码文件的字符集,Charset本身是线程安全的,每次解码都会创建新的解码器
+     */
+    private static final Charset CHARSET = Charset.forName(Constants.FILE_ENCODING);
+
+    /**
+     * 将源码读取到CharBuffer中,不共享任何可变状态,允许多个编译线程并发调用。
+     * 超过映射阈值的大文件以只读方式映射到内存后直接解码,不再复制到堆内;
+     * 小文件映射的系统调用开销高于读取本身,且堆内数组的解码更快,因此循环读满堆内缓冲区后解码
      *
-     * @param in
+     * @param file
      * @return
      * @throws Throwable
      */
-    private static ByteBuffer makeByteBuffer(InputStream in) throws Throwable {
-        Objects.requireNonNull(in);
-        int limit = in.available() <= 1024 ? 1024 : in.available();
-        var result = ByteBufferCache.get(limit);
-        //将文件内容读入到ByteBuffer中，并设置其起始位置
-        result.position(in.read(result.array(), 0, limit));
-        return result.flip();//复位position,limit=position,position=0
+    public static CharBuffer getCharContent(File file) throws Throwable {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (0 >= size) {
+                throw new FileReadException(String.format("%s中不存在任何内容", file.getName()));
+            }
+            if (size >= Constants.MAPPED_READ_THRESHOLD) {
+                //映射在通道关闭后依然有效,由GC负责解除映射
+                return CHARSET.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            var buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;//单次read可能读不满
+            return CHARSET.decode(buffer.flip());
+        }
     }
 
-    static class ByteBufferCache {
-        static ByteBuffer cached;
+    /**
+     * 遍历目录下所有指定后缀的源文件,每发现一个文件立即交由consumer处理,不再预先构建完整的文件列表;
+     * walkFileTree在读取目录项时一并获取文件属性,无需再逐个调用isFile
+     *
+     * @param root
+     * @param consumer
+     * @return 发现的源文件数量
+     * @throws Throwable
+     */
+    public static int walkSourceFiles(Path root, SourceConsumer consumer) throws Throwable {
+        var count = new int[1];
+        var error = new Throwable[1];
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (!attrs.isRegularFile() ||
+                                !file.getFileName().toString().endsWith(Constants.SOURCE_CODE_FILE_POSTFIX)) {//只加载指定后缀的文件
+                            return FileVisitResult.CONTINUE;
+                        }
+                        try {
+                            consumer.accept(file.toFile());
+                            count[0]++;
+                            return FileVisitResult.CONTINUE;
+                        } catch (Throwable e) {
+                            error[0] = e;
+                            return FileVisitResult.TERMINATE;
+                        }
+                    }
 
-        static ByteBuffer get(int capacity) {
-            capacity = capacity < 20480 ? 20480 : capacity;
-            ByteBuffer result = null;
-            if (Objects.nonNull(cached) && cached.capacity() >= capacity) {
-                log.debug("before cache hashcode:{}", System.identityHashCode(cached));
-                result = cached.clear();
-                log.debug("after cache hashcode:{}", System.identityHashCode(result));
-            } else {
-                result = ByteBuffer.allocate(capacity + capacity >> 1);
-            }
-            cached = null;
-            return result;
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                        if (e instanceof FileSystemLoopException) {//符号链接形成的环路直接跳过
+                            log.warn("{}存在循环链接, 已跳过", file);
+                            return FileVisitResult.CONTINUE;
+                        }
+                        throw e;
+                    }
+                });
+        if (Objects.nonNull(error[0])) {
+            throw error[0];
         }
+        return count[0];
+    }
 
-        static void put(ByteBuffer x) {
-            cached = x;
-        }
+    /**
+     * 源文件的处理回调
+     */
+    @FunctionalInterface
+    public interface SourceConsumer {
+        void accept(File file) throws Throwable;
     }
 
     /**
-     * 将源码读取到char[]中
+     * 将字节码写入到输出目录下的.class文件中
      *
-     * @param file
-     * @return
+     * @param out
+     * @param className
+     * @param bytecode
      * @throws Throwable
      */
-    public static CharBuffer getCharContent(File file) throws Throwable {
-        InputStream in = new FileInputStream(file);
-        if (0 >= in.available()) {
-            throw new FileReadException(String.format("%s中不存在任何内容", file.getName()));
+    public static void writeClass(String out, String className, byte[] bytecode) throws Throwable {
+        if (!new File(out).isDirectory()) {
+            throw new FileWriteException(String.format("%s不是目录", out));
+        }
+        var file = new File(out, className.replace('.', File.separatorChar) + Constants.TARGET_CODE_FILE_POSTFIX);
+        file.getParentFile().mkdirs();
+        try (var os = new FileOutputStream(file)) {
+            os.write(bytecode);
         }
-        var bb = makeByteBuffer(in);
-        ByteBufferCache.put(bb);
-        return Charset.forName(Constants.FILE_ENCODING).decode(bb);//解码后直接返回
     }
 
     /**
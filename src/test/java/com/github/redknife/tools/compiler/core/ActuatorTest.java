@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019-2119 gao_xianglong@sina.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.redknife.tools.compiler.core;
+
+import com.github.redknife.tools.compiler.runtime.RK;
+import com.github.redknife.tools.compiler.utils.Constants;
+import com.github.redknife.tools.compiler.utils.Context;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 执行器只运行本次编译清单中的类,输出目录中残留的.class文件不会被执行
+ *
+ * @author gao_xianglong@sina.com
+ * @version 0.2-SNAPSHOT
+ * @date created in 2026/10/17 9:10 下午
+ */
+public class ActuatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStaleClassNotExecuted() throws Throwable {
+        var in = folder.newFolder("in");
+        var out = folder.newFolder("out");
+        var stale = new RedKnifeEngine().compile("stale", "println(\"stale\");");
+        Files.write(out.toPath().resolve("stale" + Constants.TARGET_CODE_FILE_POSTFIX), stale);
+        Files.writeString(in.toPath().resolve("fresh" + Constants.SOURCE_CODE_FILE_POSTFIX), "println(\"fresh\");");
+        var buffer = new ByteArrayOutputStream();
+        RK.redirect(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            new Main(new Context.Builder(in.getPath()).out(out.getPath()).execute(true).build()).compile();
+        } finally {
+            RK.redirect(null);
+        }
+        var result = buffer.toString(StandardCharsets.UTF_8);
+        Assert.assertTrue(result.contains("fresh"));
+        Assert.assertFalse(result.contains("stale"));
+    }
+}